@@ -1,5 +1,8 @@
 package com.redhat.hacbs.recipes;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Objects;
 
 import com.redhat.hacbs.recipes.build.BuildRecipeInfo;
@@ -20,10 +23,12 @@ public class BuildRecipe<T> {
 
     final String name;
     final RecipeManager<T> handler;
+    final ParsedRecipeCache<T> cache;
 
     public BuildRecipe(String name, RecipeManager<T> handler) {
         this.name = name;
         this.handler = handler;
+        this.cache = new ParsedRecipeCache<>(handler);
     }
 
     public String getName() {
@@ -34,6 +39,28 @@ public class BuildRecipe<T> {
         return handler;
     }
 
+    /**
+     * Parses a recipe file for lookups, returning the cached result if the file has not changed since it was last
+     * parsed. The result is shared and must not be modified, use {@link #getHandler()} to parse a copy that can be.
+     *
+     * @param file the recipe file
+     * @return the parsed recipe
+     */
+    public T parseShared(Path file) throws IOException {
+        return cache.parse(file);
+    }
+
+    /**
+     * Removes the given files from the parsed recipe caches of the built in recipes, called when a recipe repository
+     * update changes them.
+     *
+     * @param files the changed files
+     */
+    public static void invalidateShared(Collection<Path> files) {
+        SCM.cache.invalidate(files);
+        BUILD.cache.invalidate(files);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -0,0 +1,20 @@
+package com.redhat.hacbs.recipes;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+/**
+ * Interns the strings read from recipe files. This is applied with {@code @JsonDeserialize} to the fields whose values
+ * are repeated across many files, such as repository URIs, tool names and versions.
+ */
+public class InterningStringDeserializer extends StringDeserializer {
+
+    @Override
+    public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        String value = super.deserialize(p, ctxt);
+        return value == null ? null : value.intern();
+    }
+}
@@ -0,0 +1,50 @@
+package com.redhat.hacbs.recipes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the parsed contents of recipe files, so a file that is looked up repeatedly is only parsed once for each
+ * revision of it. The revision of a file is identified by its modification time and size, which change whenever the
+ * recipe repository update rewrites it, and entries for the files changed by an update are also removed through
+ * {@link #invalidate(Collection)} so deleted files do not stay cached.
+ * <p>
+ * The parsed objects are shared between all callers, so they must not be modified.
+ */
+public class ParsedRecipeCache<T> {
+
+    private final RecipeManager<T> handler;
+    private final Map<Path, Entry<T>> entries = new ConcurrentHashMap<>();
+
+    public ParsedRecipeCache(RecipeManager<T> handler) {
+        this.handler = handler;
+    }
+
+    public T parse(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        Entry<T> entry = entries.get(file);
+        if (entry != null && entry.modified.equals(attributes.lastModifiedTime()) && entry.size == attributes.size()) {
+            return entry.value;
+        }
+        //the attributes are read first, so if the file changes while it is parsed it will be parsed again next time
+        T value = handler.parse(file);
+        entries.put(file, new Entry<>(attributes.lastModifiedTime(), attributes.size(), value));
+        return value;
+    }
+
+    /**
+     * Removes the given files from the cache.
+     */
+    public void invalidate(Collection<Path> files) {
+        entries.keySet().removeAll(files);
+    }
+
+    private record Entry<T>(FileTime modified, long size, T value) {
+    }
+}
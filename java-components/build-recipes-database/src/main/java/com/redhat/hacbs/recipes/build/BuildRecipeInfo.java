@@ -5,6 +5,8 @@ import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.redhat.hacbs.recipes.InterningStringDeserializer;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class BuildRecipeInfo {
@@ -24,7 +26,9 @@ public class BuildRecipeInfo {
      * Additional repositories to use in the rebuild.
      */
     List<String> repositories = new ArrayList<>();
+    @JsonDeserialize(using = InterningStringDeserializer.class)
     String toolVersion;
+    @JsonDeserialize(using = InterningStringDeserializer.class)
     String javaVersion;
 
     String preBuildScript;
@@ -50,6 +54,7 @@ public class BuildRecipeInfo {
 
     List<String> allowedDifferences = new ArrayList<>();
 
+    @JsonDeserialize(using = InterningStringDeserializer.class)
     String tool;
 
     public List<String> getAdditionalArgs() {
@@ -1,5 +1,6 @@
 package com.redhat.hacbs.recipes.location;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
@@ -28,6 +29,13 @@ public interface RecipeDirectory {
 
     Optional<Path> getDisabledPlugins(String tool);
 
+    /**
+     * Returns true if the given recipe file, from one of the paths returned by this directory, exists
+     */
+    default boolean exists(Path file) {
+        return Files.exists(file);
+    }
+
     default <T> void writeArtifactData(AddRecipeRequest<T> data) {
         throw new IllegalStateException("Not implemented");
     }
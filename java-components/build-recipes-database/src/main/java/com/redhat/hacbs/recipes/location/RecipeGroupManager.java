@@ -1,9 +1,10 @@
 package com.redhat.hacbs.recipes.location;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -35,46 +36,38 @@ public class RecipeGroupManager {
         List<Path> versionResults = new ArrayList<>();
         List<Path> groupResults = new ArrayList<>();
 
-        var group = gav.getGroupId();
-        log.infof("Looking up %s", group);
+        log.debugf("Looking up %s", gav.getGroupId());
 
-        List<RecipePathMatch> paths = new ArrayList<>();
         //we need to do a lookup
         for (var r : repositories) {
             var possible = r.getArtifactPaths(gav.getGroupId(), gav.getArtifactId(),
                     gav.getVersion());
-            if (possible.isPresent()) {
-                paths.add(possible.get());
+            if (possible.isEmpty()) {
+                continue;
             }
-        }
-
-        for (var path : paths) {
+            var path = possible.get();
             if (path.getArtifactAndVersion() != null) {
                 //if there is a file specific to this group, artifact and version it takes priority
                 Path resolvedPath = path.getArtifactAndVersion().resolve(BuildRecipe.SCM.getName());
-                log.infof("Searching for recipe in %s for specific path for GAV", resolvedPath);
-                if (Files.exists(resolvedPath)) {
+                if (r.exists(resolvedPath)) {
                     artifactVersionResults.add(resolvedPath);
                 }
             }
             if (path.getArtifact() != null) {
                 Path resolvedPath = path.getArtifact().resolve(BuildRecipe.SCM.getName());
-                log.infof("Searching for recipe in %s for specific path for GAV", resolvedPath);
-                if (Files.exists(resolvedPath)) {
+                if (r.exists(resolvedPath)) {
                     artifactResults.add(resolvedPath);
                 }
             }
             if (path.getVersion() != null) {
                 Path resolvedPath = path.getVersion().resolve(BuildRecipe.SCM.getName());
-                log.infof("Searching for recipe in %s for specific path for GAV", resolvedPath);
-                if (Files.exists(resolvedPath)) {
+                if (r.exists(resolvedPath)) {
                     versionResults.add(resolvedPath);
                 }
             }
             if (path.getGroup() != null) {
                 Path resolvedPath = path.getGroup().resolve(BuildRecipe.SCM.getName());
-                log.infof("Searching for recipe in %s for specific path for GAV", resolvedPath);
-                if (Files.exists(resolvedPath)) {
+                if (r.exists(resolvedPath)) {
                     groupResults.add(resolvedPath);
                 }
             }
@@ -91,23 +84,37 @@ public class RecipeGroupManager {
         return groupResults;
     }
 
+    /**
+     * Looks up the SCM information for a set of artifacts, only looking up each distinct artifact once.
+     *
+     * @param gavs the artifacts
+     * @return the SCM information files for each artifact, in the order they were given
+     */
+    public Map<GAV, List<Path>> lookupScmInformation(Collection<GAV> gavs) {
+        Map<GAV, List<Path>> results = new LinkedHashMap<>();
+        for (var gav : gavs) {
+            results.computeIfAbsent(gav, this::lookupScmInformation);
+        }
+        return results;
+    }
+
     public BuildInfoResponse requestBuildInformation(BuildInfoRequest buildInfoRequest) {
 
         String scmUri = normalizeScmUri(buildInfoRequest.getScmUri());
 
-        List<Path> paths = new ArrayList<>();
+        Map<Path, RecipeDirectory> paths = new LinkedHashMap<>();
         for (var r : repositories) {
             var possible = r.getBuildPaths(scmUri, buildInfoRequest.getVersion());
             if (possible.isPresent()) {
-                paths.add(possible.get());
+                paths.put(possible.get(), r);
             }
         }
 
         Map<BuildRecipe, Path> buildResults = new HashMap<>();
         for (var recipe : buildInfoRequest.getRecipeFiles()) {
-            for (var path : paths) {
-                var option = path.resolve(recipe.getName());
-                if (Files.exists(option)) {
+            for (var path : paths.entrySet()) {
+                var option = path.getKey().resolve(recipe.getName());
+                if (path.getValue().exists(option)) {
                     buildResults.put(recipe, option);
                     break;
                 }
@@ -0,0 +1,251 @@
+package com.redhat.hacbs.recipes.location;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.artifact.versioning.ComparableVersion;
+
+/**
+ * An in-memory index of the layout of a recipe database, so lookups do not need to probe the file system.
+ * <p>
+ * Each of the recipe directories is read into a tree of its directories, keyed by path segment, recording the files in
+ * each directory and the {@link RecipeLayoutManager#VERSION} directories sorted by version. The index is a snapshot of
+ * the database when it was built, so it has to be rebuilt or updated whenever the database changes.
+ */
+final class RecipeLayoutIndex {
+
+    private static final List<String> DIRECTORIES = List.of(RecipeRepositoryManager.SCM_INFO,
+            RecipeRepositoryManager.BUILD_INFO, RecipeRepositoryManager.REPOSITORY_INFO,
+            RecipeRepositoryManager.BUILD_TOOL_INFO, RecipeRepositoryManager.DISABLED_PLUGINS);
+
+    private final Path baseDirectory;
+    private final Node root;
+
+    private RecipeLayoutIndex(Path baseDirectory, Node root) {
+        this.baseDirectory = baseDirectory;
+        this.root = root;
+    }
+
+    static RecipeLayoutIndex build(Path baseDirectory) {
+        Node root = new Node(baseDirectory);
+        for (var name : DIRECTORIES) {
+            Path directory = baseDirectory.resolve(name);
+            if (Files.isDirectory(directory)) {
+                root.directories.put(name, read(directory));
+            }
+        }
+        return new RecipeLayoutIndex(baseDirectory, root);
+    }
+
+    private static Node read(Path directory) {
+        Deque<Node> stack = new ArrayDeque<>();
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    Node node = new Node(dir);
+                    if (!stack.isEmpty()) {
+                        stack.peek().directories.put(dir.getFileName().toString(), node);
+                    }
+                    stack.push(node);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    stack.peek().files.add(file.getFileName().toString());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    if (exc != null) {
+                        throw exc;
+                    }
+                    var node = stack.pop();
+                    node.sortVersions();
+                    if (stack.isEmpty()) {
+                        stack.push(node);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return stack.pop();
+    }
+
+    /**
+     * Returns a copy of this index with the given files, relative to the base directory, re-read from the file system.
+     * Only the directories on the path to a changed file are copied, everything else is shared with this index.
+     */
+    RecipeLayoutIndex update(Collection<String> changedFiles) {
+        Set<Node> copies = Collections.newSetFromMap(new IdentityHashMap<>());
+        Node newRoot = root.copy(copies);
+        for (var changed : changedFiles) {
+            Path relative = Path.of(changed);
+            if (relative.getNameCount() < 2 || !DIRECTORIES.contains(relative.getName(0).toString())) {
+                continue;
+            }
+            List<Node> nodes = new ArrayList<>(relative.getNameCount());
+            Node current = newRoot;
+            nodes.add(current);
+            for (int i = 0; i < relative.getNameCount() - 1; ++i) {
+                String name = relative.getName(i).toString();
+                Node child = current.directories.get(name);
+                if (child == null) {
+                    child = new Node(current.path.resolve(name));
+                    copies.add(child);
+                } else {
+                    child = child.copy(copies);
+                }
+                current.directories.put(name, child);
+                current = child;
+                nodes.add(current);
+            }
+            String name = relative.getFileName().toString();
+            if (Files.isRegularFile(baseDirectory.resolve(relative))) {
+                current.files.add(name);
+            } else {
+                current.files.remove(name);
+                //git does not keep empty directories
+                for (int i = nodes.size() - 1; i > 0 && nodes.get(i).isEmpty(); --i) {
+                    nodes.get(i - 1).directories.remove(relative.getName(i - 1).toString());
+                }
+            }
+        }
+        copies.forEach(Node::sortVersions);
+        return new RecipeLayoutIndex(baseDirectory, newRoot);
+    }
+
+    /**
+     * Returns the directory with the given path segments below the base directory, or null if it does not exist.
+     */
+    Node find(String... segments) {
+        Node current = root;
+        for (var segment : segments) {
+            current = current.directories.get(segment);
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns true if the file was present in the database when the index was built.
+     */
+    boolean exists(Path file) {
+        Path relative = baseDirectory.relativize(file);
+        Node current = root;
+        for (int i = 0; i < relative.getNameCount(); ++i) {
+            String name = relative.getName(i).toString();
+            if (i == relative.getNameCount() - 1 && current.files.contains(name)) {
+                return true;
+            }
+            current = current.directories.get(name);
+            if (current == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static final class Node {
+
+        private static final Comparator<VersionedNode> VERSION_ORDER = Comparator.comparing(VersionedNode::version);
+
+        final Path path;
+        final Map<String, Node> directories = new HashMap<>();
+        final Set<String> files = new TreeSet<>();
+        private List<VersionedNode> versions = List.of();
+
+        private Node(Path path) {
+            this.path = path;
+        }
+
+        /**
+         * Returns a copy of this node that can be modified, unless this node is already a copy.
+         */
+        private Node copy(Set<Node> copies) {
+            if (copies.contains(this)) {
+                return this;
+            }
+            Node copy = new Node(path);
+            copy.directories.putAll(directories);
+            copy.files.addAll(files);
+            copy.versions = versions;
+            copies.add(copy);
+            return copy;
+        }
+
+        private boolean isEmpty() {
+            return directories.isEmpty() && files.isEmpty();
+        }
+
+        Node directory(String name) {
+            return directories.get(name);
+        }
+
+        boolean hasFile(String name) {
+            return files.contains(name);
+        }
+
+        /**
+         * Returns the closest version directory to the requested version, i.e. the lowest version that is not lower than
+         * the requested one.
+         */
+        Optional<Path> resolveVersion(String version) {
+            if (versions.isEmpty()) {
+                return Optional.empty();
+            }
+            ComparableVersion requested = new ComparableVersion(version);
+            int low = 0;
+            int high = versions.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (versions.get(mid).version().compareTo(requested) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low < versions.size() ? Optional.of(versions.get(low).node().path) : Optional.empty();
+        }
+
+        private void sortVersions() {
+            Node versionDirectory = directories.get(RecipeLayoutManager.VERSION);
+            if (versionDirectory == null) {
+                versions = List.of();
+                return;
+            }
+            List<VersionedNode> sorted = new ArrayList<>();
+            for (var e : versionDirectory.directories.entrySet()) {
+                sorted.add(new VersionedNode(new ComparableVersion(e.getKey()), e.getValue()));
+            }
+            sorted.sort(VERSION_ORDER);
+            versions = List.copyOf(sorted);
+        }
+    }
+
+    private record VersionedNode(ComparableVersion version, Node node) {
+    }
+}
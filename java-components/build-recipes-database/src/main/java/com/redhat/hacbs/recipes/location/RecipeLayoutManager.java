@@ -4,13 +4,10 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import org.apache.maven.artifact.versioning.ComparableVersion;
 
 import com.redhat.hacbs.recipes.build.AddBuildRecipeRequest;
 
@@ -34,17 +31,22 @@ import com.redhat.hacbs.recipes.build.AddBuildRecipeRequest;
  */
 public class RecipeLayoutManager implements RecipeDirectory {
 
-    private static final Logger log = Logger.getLogger(RecipeLayoutManager.class.getName());
-
     public static final String ARTIFACT = "_artifact";
     public static final String VERSION = "_version";
+    private final Path baseDirectory;
     private final Path scmInfoDirectory;
     private final Path buildInfoDirectory;
     private final Path repositoryInfoDirectory;
     private final Path buildToolInfoDirectory;
     private final Path pluginInfoDirectory;
 
+    /**
+     * The layout of the database, built on first use and discarded whenever the database changes.
+     */
+    private volatile RecipeLayoutIndex index;
+
     public RecipeLayoutManager(Path baseDirectory) {
+        this.baseDirectory = baseDirectory;
         scmInfoDirectory = baseDirectory.resolve(RecipeRepositoryManager.SCM_INFO);
         buildInfoDirectory = baseDirectory.resolve(RecipeRepositoryManager.BUILD_INFO);
         repositoryInfoDirectory = baseDirectory.resolve(RecipeRepositoryManager.REPOSITORY_INFO);
@@ -56,100 +58,100 @@ public class RecipeLayoutManager implements RecipeDirectory {
      * Returns the directories that contain the recipe information for this specific artifact
      */
     public Optional<RecipePathMatch> getArtifactPaths(String groupId, String artifactId, String version) {
-        Path groupPath = scmInfoDirectory.resolve(groupId.replace('.', File.separatorChar));
-        Path artifactFolder = groupPath.resolve(ARTIFACT);
-        Path artifactPath = artifactFolder.resolve(artifactId);
-        Path artifactAndVersionPath = null;
-        log.warning("Searching for recipe in " + groupPath);
-
-        if (Files.notExists(groupPath)) {
+        var index = index();
+        var group = index.find(segments(RecipeRepositoryManager.SCM_INFO, groupId.split("\\.")));
+        if (group == null) {
             return Optional.empty();
         }
+        Path artifactPath = null;
+        Path artifactAndVersionPath = null;
         boolean groupAuthoritative = true;
-        if (Files.exists(artifactPath)) {
-            artifactAndVersionPath = resolveVersion(artifactPath, version).orElse(null);
+        var artifacts = group.directory(ARTIFACT);
+        var artifact = artifacts == null ? null : artifacts.directory(artifactId);
+        if (artifact != null) {
+            artifactPath = artifact.path;
+            artifactAndVersionPath = artifact.resolveVersion(version).orElse(null);
             groupAuthoritative = false;
-        } else {
-            artifactPath = null;
         }
-        Path versionPath = resolveVersion(groupPath, version).orElse(null);
+        Path versionPath = group.resolveVersion(version).orElse(null);
         if (versionPath != null) {
             groupAuthoritative = false;
         }
 
         return Optional
-                .of(new RecipePathMatch(groupPath, artifactPath, versionPath, artifactAndVersionPath, groupAuthoritative));
+                .of(new RecipePathMatch(group.path, artifactPath, versionPath, artifactAndVersionPath, groupAuthoritative));
     }
 
     @Override
     public Optional<Path> getBuildPaths(String scmUri, String version) {
-        Path target = buildInfoDirectory.resolve(RecipeGroupManager.normalizeScmUri(scmUri));
-        if (!Files.exists(target)) {
+        var target = index().find(segments(RecipeRepositoryManager.BUILD_INFO,
+                RecipeGroupManager.normalizeScmUri(scmUri).split("/")));
+        if (target == null) {
             return Optional.empty();
         }
-        return Optional.of(resolveVersion(target, version).orElse(target));
+        return Optional.of(target.resolveVersion(version).orElse(target.path));
     }
 
     @Override
     public Optional<Path> getRepositoryPaths(String name) {
-        Path target = repositoryInfoDirectory.resolve(name + ".yaml");
-        if (Files.exists(target)) {
-            return Optional.of(target);
+        var directory = index().find(RecipeRepositoryManager.REPOSITORY_INFO);
+        if (directory != null && directory.hasFile(name + ".yaml")) {
+            return Optional.of(repositoryInfoDirectory.resolve(name + ".yaml"));
         }
         return Optional.empty();
     }
 
     @Override
     public Optional<Path> getBuildToolInfo(String name) {
-        Path target = buildToolInfoDirectory.resolve(name).resolve("tool.yaml");
-        if (Files.exists(target)) {
-            return Optional.of(target);
+        var directory = index().find(RecipeRepositoryManager.BUILD_TOOL_INFO, name);
+        if (directory != null && directory.hasFile("tool.yaml")) {
+            return Optional.of(buildToolInfoDirectory.resolve(name).resolve("tool.yaml"));
         }
         return Optional.empty();
     }
 
     @Override
     public List<Path> getAllRepositoryPaths() {
-        if (Files.notExists(repositoryInfoDirectory)) {
+        var directory = index().find(RecipeRepositoryManager.REPOSITORY_INFO);
+        if (directory == null) {
             return List.of();
         }
-        try (Stream<Path> list = Files.list(repositoryInfoDirectory)) {
-            return list.filter(s -> s.toString().endsWith(".yaml")).collect(Collectors.toList());
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return directory.files.stream().filter(s -> s.endsWith(".yaml")).map(repositoryInfoDirectory::resolve)
+                .collect(Collectors.toList());
     }
 
     @Override
     public Optional<Path> getDisabledPlugins(String tool) {
-        Path target = pluginInfoDirectory.resolve(tool + ".yaml");
-        return Files.isReadable(target) ? Optional.of(target) : Optional.empty();
+        var directory = index().find(RecipeRepositoryManager.DISABLED_PLUGINS);
+        if (directory != null && directory.hasFile(tool + ".yaml")) {
+            return Optional.of(pluginInfoDirectory.resolve(tool + ".yaml"));
+        }
+        return Optional.empty();
     }
 
-    private Optional<Path> resolveVersion(Path target, String version) {
-        Path versions = target.resolve(VERSION);
-        if (!Files.exists(versions)) {
-            return Optional.empty();
-        }
-        ComparableVersion requestedVersion = new ComparableVersion(version);
-        ComparableVersion currentVersion = null;
-        Path currentPath = null;
-        try (var s = Files.list(versions)) {
-            var i = s.iterator();
-            while (i.hasNext()) {
-                var path = i.next();
-                ComparableVersion pv = new ComparableVersion(path.getFileName().toString());
-                if (requestedVersion.compareTo(pv) <= 0) {
-                    if (currentVersion == null || pv.compareTo(currentVersion) < 0) {
-                        currentVersion = pv;
-                        currentPath = path;
-                    }
+    @Override
+    public boolean exists(Path file) {
+        return index().exists(file);
+    }
+
+    private RecipeLayoutIndex index() {
+        var current = index;
+        if (current == null) {
+            synchronized (this) {
+                current = index;
+                if (current == null) {
+                    index = current = RecipeLayoutIndex.build(baseDirectory);
                 }
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
         }
-        return Optional.ofNullable(currentPath);
+        return current;
+    }
+
+    private static String[] segments(String directory, String[] path) {
+        String[] segments = new String[path.length + 1];
+        segments[0] = directory;
+        System.arraycopy(path, 0, segments, 1, path.length);
+        return segments;
     }
 
     @Override
@@ -163,12 +165,28 @@ public class RecipeLayoutManager implements RecipeDirectory {
             data.getRecipe().getHandler().write(data.getData(), target.resolve(data.getRecipe().getName()));
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            update();
         }
     }
 
+    /**
+     * Discards the index, so the next lookup sees the current contents of the database.
+     */
     @Override
     public void update() {
+        index = null;
+    }
 
+    /**
+     * Updates the index with the given files, relative to the base directory, that have changed. Lookups see the
+     * old index until the update is complete.
+     */
+    public synchronized void update(Collection<String> changedFiles) {
+        var current = index;
+        if (current != null) {
+            index = current.update(changedFiles);
+        }
     }
 
     @Override
@@ -190,6 +208,8 @@ public class RecipeLayoutManager implements RecipeDirectory {
             data.getRecipe().getHandler().write(data.getData(), resolved.resolve(data.getRecipe().getName()));
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            update();
         }
     }
 }
@@ -5,20 +5,48 @@ import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.merge.ContentMergeStrategy;
 import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.jboss.logging.Logger;
 
+import com.redhat.hacbs.recipes.BuildRecipe;
 import com.redhat.hacbs.recipes.util.GitCredentials;
 
 /**
  * A recipe database stored in git.
  */
 public class RecipeRepositoryManager implements RecipeDirectory {
+
+    private static final Logger log = Logger.getLogger(RecipeRepositoryManager.class);
+
+    /**
+     * Runs the interval updates, so they do not hold up the lookup that noticed the interval had expired.
+     */
+    private static final ExecutorService UPDATER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "recipe-repository-update");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     public static final String SCM_INFO = "scm-info";
     public static final String BUILD_INFO = "build-info";
     public static final String BUILD_TOOL_INFO = "build-tool-info";
@@ -31,6 +59,8 @@ public class RecipeRepositoryManager implements RecipeDirectory {
     private final Optional<Duration> updateInterval;
     private final RecipeLayoutManager recipeLayoutManager;
     private volatile long lastUpdate = -1;
+    private final AtomicBoolean updating = new AtomicBoolean();
+    private final List<Consumer<Set<Path>>> listeners = new CopyOnWriteArrayList<>();
 
     public RecipeRepositoryManager(Git git, String remote, Path local, String branch, Optional<Duration> updateInterval) {
         this.git = git;
@@ -40,6 +70,7 @@ public class RecipeRepositoryManager implements RecipeDirectory {
         this.updateInterval = updateInterval;
         this.lastUpdate = System.currentTimeMillis();
         this.recipeLayoutManager = new RecipeLayoutManager(local);
+        listeners.add(BuildRecipe::invalidateShared);
     }
 
     public static RecipeRepositoryManager create(String remote)
@@ -130,29 +161,107 @@ public class RecipeRepositoryManager implements RecipeDirectory {
     }
 
     @Override
-    public void update() {
+    public boolean exists(Path file) {
+        return recipeLayoutManager.exists(file);
+    }
+
+    /**
+     * Registers a listener that is notified with the files that changed after each update that changed the revision.
+     */
+    public void addChangeListener(Consumer<Set<Path>> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Pulls the latest changes, and updates the layout index with the files that changed between the revisions.
+     * <p>
+     * Lookups are not blocked while this runs, they see the previous contents of the index until it has been
+     * updated, and do not start an interval update of their own.
+     */
+    @Override
+    public synchronized void update() {
+        updating.set(true);
+        try {
+            pull();
+        } finally {
+            updating.set(false);
+        }
+    }
+
+    private void pull() {
         try {
+            Repository repository = git.getRepository();
+            ObjectId before = repository.resolve(Constants.HEAD);
             git.pull().setContentMergeStrategy(ContentMergeStrategy.THEIRS).setStrategy(MergeStrategy.THEIRS)
                     .call();
-        } catch (GitAPIException e) {
+            ObjectId after = repository.resolve(Constants.HEAD);
+            if (!Objects.equals(before, after)) {
+                if (before == null) {
+                    recipeLayoutManager.update();
+                } else {
+                    Set<String> changed = changedFiles(repository, before, after);
+                    recipeLayoutManager.update(changed);
+                    Set<Path> files = new HashSet<>();
+                    for (var file : changed) {
+                        files.add(local.resolve(file));
+                    }
+                    for (var listener : listeners) {
+                        listener.accept(files);
+                    }
+                }
+            }
+        } catch (GitAPIException | IOException e) {
             throw new RuntimeException(e);
         }
         lastUpdate = System.currentTimeMillis();
     }
 
+    private static Set<String> changedFiles(Repository repository, ObjectId before, ObjectId after) throws IOException {
+        Set<String> changed = new HashSet<>();
+        try (TreeWalk walk = new TreeWalk(repository)) {
+            walk.addTree(repository.parseCommit(before).getTree());
+            walk.addTree(repository.parseCommit(after).getTree());
+            walk.setRecursive(true);
+            walk.setFilter(TreeFilter.ANY_DIFF);
+            while (walk.next()) {
+                changed.add(walk.getPathString());
+            }
+        }
+        return changed;
+    }
+
     private void doUpdate() {
         if (updateInterval.isEmpty()) {
             return;
         }
-        if (lastUpdate + updateInterval.get().toMillis() < System.currentTimeMillis()) {
-            synchronized (this) {
-                if (lastUpdate + updateInterval.get().toMillis() < System.currentTimeMillis()) {
-                    update();
-                }
+        if (isExpired() && updating.compareAndSet(false, true)) {
+            //only one update runs at a time, lookups carry on with the current contents
+            try {
+                UPDATER.execute(this::intervalUpdate);
+            } catch (RejectedExecutionException e) {
+                updating.set(false);
+                log.errorf(e, "Failed to schedule update of %s", remote);
+            }
+        }
+    }
+
+    private synchronized void intervalUpdate() {
+        try {
+            //a forced update may have run while this was queued
+            if (isExpired()) {
+                pull();
             }
+        } catch (RuntimeException e) {
+            log.errorf(e, "Failed to update %s", remote);
+        } finally {
+            updating.set(false);
         }
     }
 
+    private boolean isExpired() {
+        return lastUpdate + updateInterval.get().toMillis() < System.currentTimeMillis();
+    }
+
     @Override
     public String toString() {
         return "RecipeRepositoryManager{" +
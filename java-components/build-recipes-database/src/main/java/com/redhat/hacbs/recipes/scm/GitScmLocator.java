@@ -7,12 +7,13 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -34,6 +35,13 @@ public class GitScmLocator implements ScmLocator {
 
     private static final Pattern NUMERIC_PART = Pattern.compile("(\\d+)(\\.\\d+)+");
 
+    private static final int MAX_TAG_MAPPING_PATTERNS = 1000;
+
+    /**
+     * The compiled tag mapping patterns, shared between locators as a new locator may be created for each lookup
+     */
+    private static final Map<String, Pattern> TAG_MAPPING_PATTERNS = new ConcurrentHashMap<>();
+
     public static GitScmLocator getInstance() {
         return builder().build();
     }
@@ -47,6 +55,7 @@ public class GitScmLocator implements ScmLocator {
         public RecipeGroupManager recipeGroupManager;
         private List<String> recipeRepos = List.of(BuildRecipe.DEFAULT_RECIPE_REPO_URL);
         private boolean cacheRepoTags;
+        private TagCache tagCache;
         private String cacheUrl;
         private ScmLocator fallbackScmLocator;
         private boolean cloneLocalRecipeRepos = true;
@@ -91,6 +100,18 @@ public class GitScmLocator implements ScmLocator {
             return this;
         }
 
+        /**
+         * A tag cache to use for code repository tags, that can be shared with other locators. If this is set then
+         * {@link #setCacheRepoTags(boolean)} has no effect.
+         *
+         * @param tagCache the tag cache
+         * @return this builder instance
+         */
+        public Builder setTagCache(TagCache tagCache) {
+            this.tagCache = tagCache;
+            return this;
+        }
+
         /**
          * An SCM locator that should be used in case no information was found in the configured recipe repositories.
          *
@@ -135,9 +156,8 @@ public class GitScmLocator implements ScmLocator {
     }
 
     private final List<String> recipeRepos;
-    private final boolean cacheRepoTags;
     private final ScmLocator fallbackScmLocator;
-    private final Map<String, Map<String, String>> repoTagsToHash;
+    private final TagCache tagCache;
     private final boolean cloneLocalRecipeRepos;
     private final Path gitCloneBaseDir;
 
@@ -145,9 +165,12 @@ public class GitScmLocator implements ScmLocator {
 
     private GitScmLocator(Builder builder) {
         this.recipeRepos = builder.recipeRepos;
-        this.cacheRepoTags = builder.cacheRepoTags;
         this.fallbackScmLocator = builder.fallbackScmLocator;
-        this.repoTagsToHash = cacheRepoTags ? new HashMap<>() : Map.of();
+        if (builder.tagCache != null) {
+            this.tagCache = builder.tagCache;
+        } else {
+            this.tagCache = builder.cacheRepoTags ? new TagCache(null) : null;
+        }
         this.cloneLocalRecipeRepos = builder.cloneLocalRecipeRepos;
         this.recipeGroupManager = builder.recipeGroupManager;
         this.gitCloneBaseDir = builder.gitCloneBaseDir;
@@ -192,6 +215,18 @@ public class GitScmLocator implements ScmLocator {
     }
 
     public TagInfo resolveTagInfo(GAV toBuild) {
+        return resolveTagInfo(toBuild, false);
+    }
+
+    /**
+     * Resolves the tag of an artifact.
+     *
+     * @param toBuild the artifact to resolve
+     * @param refreshTags if the cached tags of the repositories that are searched should be discarded first, for
+     *        example because the artifact is being rebuilt and may have been tagged since they were cached
+     * @return the tag information
+     */
+    public TagInfo resolveTagInfo(GAV toBuild, boolean refreshTags) {
 
         log.debugf("Looking up %s", toBuild);
 
@@ -201,13 +236,50 @@ public class GitScmLocator implements ScmLocator {
         var recipes = recipeGroupManager
                 .lookupScmInformation(toBuild);
         log.infof("Found the following build info files for %s: %s", toBuild, recipes);
+        return resolveTagInfo(toBuild, recipes, tagCache, refreshTags);
+    }
+
+    /**
+     * Resolves the tags of a set of artifacts. Artifacts that have the same recipes and version, such as the modules of
+     * a project, are only resolved once, and the tags of each repository are only read once.
+     *
+     * @param gavs the artifacts to resolve
+     * @return the result for each artifact, in the order they were given
+     */
+    public Map<GAV, TagInfoResult> resolveTagInfo(Collection<GAV> gavs) {
+        var recipes = getRecipeGroupManager().lookupScmInformation(gavs);
+        TagCache tags = tagCache == null ? new TagCache(null) : tagCache;
+        Map<SharedResolution, TagInfoResult> shared = new HashMap<>();
+        Map<GAV, TagInfoResult> results = new LinkedHashMap<>();
+        for (var e : recipes.entrySet()) {
+            GAV gav = e.getKey();
+            if (e.getValue().isEmpty()) {
+                //the fallback locator works on the individual artifact
+                results.put(gav, resolveTagInfoResult(gav, e.getValue(), tags));
+            } else {
+                results.put(gav, shared.computeIfAbsent(new SharedResolution(e.getValue(), gav.getVersion()),
+                        k -> resolveTagInfoResult(gav, e.getValue(), tags)));
+            }
+        }
+        return results;
+    }
 
+    private TagInfoResult resolveTagInfoResult(GAV toBuild, List<Path> recipes, TagCache tags) {
+        try {
+            return new TagInfoResult(resolveTagInfo(toBuild, recipes, tags, false), null);
+        } catch (RuntimeException e) {
+            log.errorf(e, "Failed to resolve tag information for %s", toBuild);
+            return new TagInfoResult(null, e.getMessage());
+        }
+    }
+
+    private TagInfo resolveTagInfo(GAV toBuild, List<Path> recipes, TagCache tagCache, boolean refreshTags) {
         List<RepositoryInfo> repos = new ArrayList<>();
         List<TagMapping> allMappings = new ArrayList<>();
         for (var recipe : recipes) {
             ScmInfo main;
             try {
-                main = BuildRecipe.SCM.getHandler().parse(recipe);
+                main = BuildRecipe.SCM.parseShared(recipe);
             } catch (IOException e) {
                 throw new UncheckedIOException("Failed to parse " + recipe, e);
             }
@@ -240,9 +312,12 @@ public class GitScmLocator implements ScmLocator {
 
             //now look for a tag
             try {
-                final Map<String, String> tagsToHash = getTagToHashMap(parsedInfo);
+                if (refreshTags && tagCache != null) {
+                    tagCache.invalidate(parsedInfo.getUriWithoutFragment());
+                }
+                final TagIndex tags = getTags(parsedInfo, tagCache);
                 if (fallbackTagInfo != null && fallbackTagInfo.getTag() != null) {
-                    var hash = tagsToHash.get(fallbackTagInfo.getTag());
+                    var hash = tags.getHash(fallbackTagInfo.getTag());
                     if (hash != null) {
                         return new TagInfo(fallbackTagInfo.getRepoInfo(), fallbackTagInfo.getTag(), hash);
                     }
@@ -255,17 +330,17 @@ public class GitScmLocator implements ScmLocator {
                 //first try tag mappings
                 for (var mapping : allMappings) {
                     log.debugf("Trying tag pattern %s on version %s", mapping.getPattern(), version);
-                    Matcher m = Pattern.compile(mapping.getPattern()).matcher(version);
+                    Matcher m = tagMappingPattern(mapping.getPattern()).matcher(version);
                     if (m.matches()) {
                         log.debugf("Tag pattern %s matches", mapping.getPattern());
                         String match = mapping.getTag();
                         for (int i = 0; i <= m.groupCount(); ++i) {
-                            match = match.replaceAll("\\$" + i, m.group(i));
+                            match = match.replace("$" + i, m.group(i));
                         }
                         log.debugf("Trying to find tag %s", match);
                         //if the tag was a constant we don't require it to be in the tag set
                         //this allows for explicit refs to be used
-                        if (tagsToHash.containsKey(match) || match.equals(mapping.getTag())) {
+                        if (tags.contains(match) || match.equals(mapping.getTag())) {
                             selectedTag = match;
                             break;
                         }
@@ -274,7 +349,7 @@ public class GitScmLocator implements ScmLocator {
 
                 if (selectedTag == null) {
                     try {
-                        selectedTag = runTagHeuristic(version, tagsToHash);
+                        selectedTag = runTagHeuristic(version, tags);
                     } catch (RuntimeException e) {
                         if (firstFailure == null) {
                             firstFailure = e;
@@ -282,13 +357,13 @@ public class GitScmLocator implements ScmLocator {
                             firstFailure.addSuppressed(e);
                         }
                         //it is a very common pattern to use underscores instead of dots in the tags
-                        selectedTag = runTagHeuristic(underscoreVersion, tagsToHash);
+                        selectedTag = runTagHeuristic(underscoreVersion, tags);
                     }
                 }
 
                 if (selectedTag != null) {
                     firstFailure = null;
-                    String hash = tagsToHash.get(selectedTag);
+                    String hash = tags.getHash(selectedTag);
                     if (hash == null) {
                         hash = selectedTag; //sometimes the tag is a hash
                     }
@@ -314,23 +389,17 @@ public class GitScmLocator implements ScmLocator {
     }
 
     static String runTagHeuristic(String version, Map<String, String> tagsToHash) {
-        String selectedTag = null;
-        Set<String> versionExactContains = new HashSet<>();
-        Set<String> tagExactContains = new HashSet<>();
-        for (var name : tagsToHash.keySet()) {
-            if (name.equals(version)) {
-                //exact match is always good
-                selectedTag = version;
-                break;
-            } else if (name.contains(version)) {
-                versionExactContains.add(name);
-            } else if (version.contains(name)) {
-                tagExactContains.add(name);
-            }
-        }
-        if (selectedTag != null) {
-            return selectedTag;
+        return runTagHeuristic(version, new TagIndex(tagsToHash));
+    }
+
+    static String runTagHeuristic(String version, TagIndex tags) {
+        if (tags.contains(version)) {
+            //exact match is always good
+            return version;
         }
+        String selectedTag = null;
+        Set<String> versionExactContains = tags.tagsContaining(version);
+        Set<String> tagExactContains = tags.tagsContainedIn(version);
 
         //no exact match
         if (versionExactContains.size() == 1) {
@@ -373,27 +442,36 @@ public class GitScmLocator implements ScmLocator {
         return selectedTag;
     }
 
-    private Map<String, String> getTagToHashMap(RepositoryInfo repo) {
-        Map<String, String> tagsToHash = repoTagsToHash.get(repo.getUri());
-        if (tagsToHash == null) {
-            tagsToHash = getTagToHashMapFromGit(repo);
-            if (cacheRepoTags) {
-                repoTagsToHash.put(repo.getUri(), tagsToHash);
+    static Pattern tagMappingPattern(String pattern) {
+        var compiled = TAG_MAPPING_PATTERNS.get(pattern);
+        if (compiled == null) {
+            //the recipes only have a limited number of patterns, but make sure this can't grow without bound
+            if (TAG_MAPPING_PATTERNS.size() >= MAX_TAG_MAPPING_PATTERNS) {
+                TAG_MAPPING_PATTERNS.clear();
             }
+            compiled = Pattern.compile(pattern);
+            TAG_MAPPING_PATTERNS.put(pattern, compiled);
         }
-        return tagsToHash;
+        return compiled;
+    }
+
+    private static TagIndex getTags(RepositoryInfo repo, TagCache tagCache) {
+        if (tagCache != null) {
+            return tagCache.getTags(repo.getUriWithoutFragment());
+        }
+        return new TagIndex(getTagToHashMapFromGit(repo.getUriWithoutFragment()));
     }
 
-    private static Map<String, String> getTagToHashMapFromGit(RepositoryInfo parsedInfo) {
+    static Map<String, String> getTagToHashMapFromGit(String uri) {
         Map<String, String> tagsToHash;
         final Collection<Ref> tags;
         try {
             tags = Git.lsRemoteRepository()
                     .setCredentialsProvider(
                             new GitCredentials())
-                    .setRemote(parsedInfo.getUriWithoutFragment()).setTags(true).setHeads(false).call();
+                    .setRemote(uri).setTags(true).setHeads(false).call();
         } catch (GitAPIException e) {
-            throw new RuntimeException("Failed to obtain a list of tags from " + parsedInfo.getUri(), e);
+            throw new RuntimeException("Failed to obtain a list of tags from " + uri, e);
         }
         tagsToHash = new HashMap<>(tags.size());
         for (var tag : tags) {
@@ -403,4 +481,7 @@ public class GitScmLocator implements ScmLocator {
 
         return tagsToHash;
     }
+
+    private record SharedResolution(List<Path> recipes, String version) {
+    }
 }
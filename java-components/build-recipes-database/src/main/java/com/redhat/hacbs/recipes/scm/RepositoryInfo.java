@@ -8,12 +8,16 @@ import org.jboss.logging.Logger;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.redhat.hacbs.recipes.InterningStringDeserializer;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class RepositoryInfo {
     private static final Logger log = Logger.getLogger(RepositoryInfo.class.getName());
 
+    @JsonDeserialize(using = InterningStringDeserializer.class)
     String type;
+    @JsonDeserialize(using = InterningStringDeserializer.class)
     String uri;
     String path;
 
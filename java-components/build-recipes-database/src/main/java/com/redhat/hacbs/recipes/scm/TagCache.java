@@ -0,0 +1,317 @@
+package com.redhat.hacbs.recipes.scm;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.jboss.logging.Logger;
+
+/**
+ * A cache of the tags of code repositories, as returned by {@code git ls-remote}, that can be shared between
+ * {@link GitScmLocator} instances.
+ * <p>
+ * Entries are considered fresh for the configured time to live, after which the next lookup revalidates them against
+ * the remote. If the tags have not changed the existing entry (including its index) is kept and only its timestamp is
+ * updated. If the remote cannot be reached the stale entry is used rather than failing the lookup, and the remote is
+ * not queried again for another time to live.
+ * <p>
+ * At most {@link #MAX_TAGS} tags are held in total, the least recently used repositories are discarded to stay under
+ * this. The bound is on tags rather than repositories as a single repository can have tens of thousands of tags. If a
+ * directory is provided the entries are also written to disk, so they survive restarts, and it is pruned to the same
+ * size on startup.
+ */
+public class TagCache {
+
+    private static final Logger log = Logger.getLogger(TagCache.class);
+
+    static final int MAX_TAGS = 500000;
+    private static final int LOCK_STRIPES = 64;
+
+    private final Duration ttl;
+    private final Path directory;
+    private final int maxTags;
+    private final Clock clock;
+    private final Function<String, Map<String, String>> lsRemote;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * The number of tags held in {@link #entries}, guarded by the map.
+     */
+    private long totalTags;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * Creates an in-memory cache.
+     *
+     * @param ttl how long the tags of a repository are used before they are revalidated, or null to never revalidate
+     */
+    public TagCache(Duration ttl) {
+        this(ttl, null);
+    }
+
+    /**
+     * Creates a cache that is persisted to the given directory.
+     *
+     * @param ttl how long the tags of a repository are used before they are revalidated, or null to never revalidate
+     * @param directory the directory to store the tags in, or null to only cache them in memory
+     */
+    public TagCache(Duration ttl, Path directory) {
+        this(ttl, directory, MAX_TAGS, Clock.systemUTC(), GitScmLocator::getTagToHashMapFromGit);
+    }
+
+    TagCache(Duration ttl, Path directory, int maxTags, Clock clock, Function<String, Map<String, String>> lsRemote) {
+        this.ttl = ttl;
+        this.directory = directory;
+        this.maxTags = maxTags;
+        this.clock = clock;
+        this.lsRemote = lsRemote;
+        for (int i = 0; i < locks.length; ++i) {
+            locks[i] = new Object();
+        }
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to create tag cache directory " + directory, e);
+            }
+            prune();
+        }
+    }
+
+    /**
+     * Discards the cached tags of a single repository, so the next lookup of it goes to the remote.
+     */
+    public void invalidate(String uri) {
+        //hold the lock for the repository, so a concurrent lookup cannot put back the tags it read before this
+        synchronized (lock(uri)) {
+            synchronized (entries) {
+                Entry removed = entries.remove(uri);
+                if (removed != null) {
+                    totalTags -= size(removed);
+                }
+            }
+            delete(uri);
+        }
+    }
+
+    TagIndex getTags(String uri) {
+        Entry entry = get(uri);
+        if (entry != null && isFresh(entry)) {
+            return entry.tags;
+        }
+        synchronized (lock(uri)) {
+            //another thread may have fetched the tags while we were waiting
+            entry = get(uri);
+            if (entry == null) {
+                entry = read(uri);
+            }
+            if (entry != null && isFresh(entry)) {
+                put(uri, entry);
+                return entry.tags;
+            }
+            Map<String, String> tagsToHash;
+            try {
+                tagsToHash = lsRemote.apply(uri);
+            } catch (RuntimeException e) {
+                if (entry == null) {
+                    throw e;
+                }
+                log.warnf(e, "Failed to revalidate tags for %s, using tags fetched at %s", uri, entry.fetched);
+                entry = new Entry(entry.tags, entry.fetched, clock.instant());
+                put(uri, entry);
+                return entry.tags;
+            }
+            Instant now = clock.instant();
+            if (entry != null && entry.tags.getTagsToHash().equals(tagsToHash)) {
+                log.debugf("Tags for %s are unchanged", uri);
+                entry = new Entry(entry.tags, now, null);
+            } else {
+                entry = new Entry(new TagIndex(tagsToHash), now, null);
+            }
+            put(uri, entry);
+            write(uri, entry);
+            return entry.tags;
+        }
+    }
+
+    private Object lock(String uri) {
+        return locks[Math.floorMod(uri.hashCode(), locks.length)];
+    }
+
+    private Entry get(String uri) {
+        synchronized (entries) {
+            return entries.get(uri);
+        }
+    }
+
+    /**
+     * Adds the entry, then discards the least recently used entries until the cache is back under the maximum number
+     * of tags. The entry that was just added is always kept, even if it is over the limit on its own.
+     */
+    private void put(String uri, Entry entry) {
+        synchronized (entries) {
+            Entry previous = entries.put(uri, entry);
+            totalTags += size(entry) - (previous == null ? 0 : size(previous));
+            for (var it = entries.entrySet().iterator(); totalTags > maxTags && entries.size() > 1;) {
+                var eldest = it.next();
+                it.remove();
+                totalTags -= size(eldest.getValue());
+                delete(eldest.getKey());
+            }
+        }
+    }
+
+    long totalTags() {
+        synchronized (entries) {
+            return totalTags;
+        }
+    }
+
+    private static int size(Entry entry) {
+        return entry.tags.getTagsToHash().size();
+    }
+
+    /**
+     * An entry is fresh for the time to live after it was fetched, or after the last failed attempt to revalidate it.
+     */
+    private boolean isFresh(Entry entry) {
+        if (ttl == null) {
+            return true;
+        }
+        Instant now = clock.instant();
+        return entry.fetched.plus(ttl).isAfter(now) || (entry.failed != null && entry.failed.plus(ttl).isAfter(now));
+    }
+
+    private Path file(String uri) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(uri.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(digest));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the persisted tags for the repository. The file contains the repository URI on the first line, followed
+     * by a line per tag with the tag and its hash, and its modification time is the time the tags were fetched.
+     */
+    private Entry read(String uri) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = file(uri);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).equals(uri)) {
+                return null;
+            }
+            Map<String, String> tagsToHash = new HashMap<>(lines.size());
+            for (int i = 1; i < lines.size(); ++i) {
+                var line = lines.get(i);
+                int index = line.lastIndexOf(' ');
+                if (index > 0) {
+                    tagsToHash.put(line.substring(0, index), line.substring(index + 1));
+                }
+            }
+            return new Entry(new TagIndex(tagsToHash), Files.getLastModifiedTime(file).toInstant(), null);
+        } catch (IOException e) {
+            log.errorf(e, "Failed to read cached tags for %s from %s", uri, file);
+            return null;
+        }
+    }
+
+    private void write(String uri, Entry entry) {
+        if (directory == null) {
+            return;
+        }
+        Path file = file(uri);
+        try {
+            List<String> lines = new ArrayList<>(entry.tags.getTagsToHash().size() + 1);
+            lines.add(uri);
+            for (var e : entry.tags.getTagsToHash().entrySet()) {
+                lines.add(e.getKey() + " " + e.getValue());
+            }
+            Path temp = Files.createTempFile(directory, "tags", ".tmp");
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(temp, FileTime.from(entry.fetched));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.errorf(e, "Failed to write cached tags for %s to %s", uri, file);
+        }
+    }
+
+    private void delete(String uri) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file(uri));
+        } catch (IOException e) {
+            log.errorf(e, "Failed to delete cached tags for %s", uri);
+        }
+    }
+
+    /**
+     * Deletes the least recently fetched files once they hold more than the maximum number of tags, so the directory
+     * does not grow without bound across restarts. Each file has a line per tag after the repository URI.
+     */
+    private void prune() {
+        try (var files = Files.list(directory)) {
+            var sorted = files.sorted(Comparator.comparing(TagCache::lastModified).reversed()).toList();
+            long tags = 0;
+            for (int i = 0; i < sorted.size(); ++i) {
+                if (tags <= maxTags) {
+                    tags += countTags(sorted.get(i));
+                }
+                //like the in-memory entries, the most recent file is kept even if it is over the limit on its own
+                if (i > 0 && tags > maxTags) {
+                    Files.deleteIfExists(sorted.get(i));
+                }
+            }
+        } catch (IOException e) {
+            log.errorf(e, "Failed to prune tag cache directory %s", directory);
+        }
+    }
+
+    private static long countTags(Path file) throws IOException {
+        long lines = 0;
+        for (byte b : Files.readAllBytes(file)) {
+            if (b == '\n') {
+                ++lines;
+            }
+        }
+        return Math.max(0, lines - 1);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * @param failed the time of the last failed attempt to revalidate the tags, or null
+     */
+    private record Entry(TagIndex tags, Instant fetched, Instant failed) {
+    }
+}
@@ -0,0 +1,112 @@
+package com.redhat.hacbs.recipes.scm;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The tags of a repository, indexed so that versions can be matched against the tag names without scanning every tag.
+ * <p>
+ * Tags containing a version are found through an index of the three character sequences in each tag name: only the
+ * tags that have the rarest sequence of the version are checked. Tags contained in a version are found by looking up
+ * each substring of the version, as versions are short. The sequence index is built on first use, as most lookups are
+ * resolved by a tag mapping or an exact match.
+ */
+final class TagIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final Map<String, String> tagsToHash;
+    private volatile Map<String, List<String>> grams;
+
+    TagIndex(Map<String, String> tagsToHash) {
+        this.tagsToHash = tagsToHash;
+    }
+
+    Map<String, String> getTagsToHash() {
+        return tagsToHash;
+    }
+
+    boolean contains(String tag) {
+        return tagsToHash.containsKey(tag);
+    }
+
+    String getHash(String tag) {
+        return tagsToHash.get(tag);
+    }
+
+    /**
+     * Returns the tags whose names contain the version, excluding an exact match.
+     */
+    Set<String> tagsContaining(String version) {
+        Collection<String> candidates;
+        if (version.length() < GRAM_LENGTH) {
+            candidates = tagsToHash.keySet();
+        } else {
+            var grams = grams();
+            candidates = null;
+            for (int i = 0; i + GRAM_LENGTH <= version.length(); ++i) {
+                var tags = grams.get(version.substring(i, i + GRAM_LENGTH));
+                if (tags == null) {
+                    return Set.of();
+                }
+                if (candidates == null || tags.size() < candidates.size()) {
+                    candidates = tags;
+                }
+            }
+        }
+        Set<String> result = new HashSet<>();
+        for (var name : candidates) {
+            if (!name.equals(version) && name.contains(version)) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the tags whose names are contained in the version, excluding an exact match.
+     */
+    Set<String> tagsContainedIn(String version) {
+        Set<String> result = new HashSet<>();
+        for (int start = 0; start < version.length(); ++start) {
+            for (int end = start + 1; end <= version.length(); ++end) {
+                if (end - start == version.length()) {
+                    continue;
+                }
+                var name = version.substring(start, end);
+                if (tagsToHash.containsKey(name)) {
+                    result.add(name);
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<String, List<String>> grams() {
+        var result = grams;
+        if (result == null) {
+            synchronized (this) {
+                result = grams;
+                if (result == null) {
+                    result = new HashMap<>();
+                    for (var name : tagsToHash.keySet()) {
+                        Set<String> seen = new HashSet<>();
+                        for (int i = 0; i + GRAM_LENGTH <= name.length(); ++i) {
+                            var gram = name.substring(i, i + GRAM_LENGTH);
+                            if (seen.add(gram)) {
+                                result.computeIfAbsent(gram, k -> new ArrayList<>()).add(name);
+                            }
+                        }
+                    }
+                    grams = result;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,8 @@
+package com.redhat.hacbs.recipes.scm;
+
+/**
+ * The result of resolving the tag of one artifact in a batch, either the tag information or the reason it could not be
+ * determined.
+ */
+public record TagInfoResult(TagInfo tagInfo, String error) {
+}
@@ -0,0 +1,42 @@
+package com.redhat.hacbs.recipes;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.redhat.hacbs.recipes.scm.ScmInfo;
+
+class ParsedRecipeCacheTest {
+
+    @Test
+    public void testParsedOncePerRevision(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("scm.yaml");
+        Files.writeString(file, "uri: https://github.com/test/gizmo.git\ntype: git\n");
+        ParsedRecipeCache<ScmInfo> cache = new ParsedRecipeCache<>(BuildRecipe.SCM.getHandler());
+
+        ScmInfo info = cache.parse(file);
+        Assertions.assertSame(info, cache.parse(file));
+        //repeated values are shared
+        Assertions.assertSame("https://github.com/test/gizmo.git", info.getUri());
+
+        Files.writeString(file, "uri: https://github.com/test/gizmo-legacy.git\ntype: git\n");
+        ScmInfo changed = cache.parse(file);
+        Assertions.assertNotSame(info, changed);
+        Assertions.assertEquals("https://github.com/test/gizmo-legacy.git", changed.getUri());
+    }
+
+    @Test
+    public void testInvalidate(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("scm.yaml");
+        Files.writeString(file, "uri: https://github.com/test/gizmo.git\ntype: git\n");
+        ParsedRecipeCache<ScmInfo> cache = new ParsedRecipeCache<>(BuildRecipe.SCM.getHandler());
+
+        ScmInfo info = cache.parse(file);
+        cache.invalidate(Set.of(file));
+        Assertions.assertNotSame(info, cache.parse(file));
+    }
+}
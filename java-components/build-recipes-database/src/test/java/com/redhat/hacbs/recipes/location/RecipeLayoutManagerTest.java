@@ -1,7 +1,9 @@
 package com.redhat.hacbs.recipes.location;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -12,4 +14,26 @@ class RecipeLayoutManagerTest {
 
         recipeLayoutManager.getAllRepositoryPaths();
     }
+
+    @Test
+    public void testIndexRebuiltOnUpdate(@TempDir Path tempDir) throws Exception {
+        RecipeLayoutManager recipeLayoutManager = new RecipeLayoutManager(tempDir);
+        Assertions.assertTrue(recipeLayoutManager.getArtifactPaths("io.quarkus", "quarkus-core", "1.0").isEmpty());
+
+        Path version = tempDir.resolve(RecipeRepositoryManager.SCM_INFO).resolve("io/quarkus")
+                .resolve(RecipeLayoutManager.VERSION).resolve("1.1");
+        Files.createDirectories(version);
+        Files.writeString(version.resolve("scm.yaml"), "");
+        //changes made outside the manager are only seen after an update
+        Assertions.assertTrue(recipeLayoutManager.getArtifactPaths("io.quarkus", "quarkus-core", "1.0").isEmpty());
+
+        recipeLayoutManager.update();
+        var match = recipeLayoutManager.getArtifactPaths("io.quarkus", "quarkus-core", "1.0").orElseThrow();
+        Assertions.assertEquals(version, match.getVersion());
+        Assertions.assertFalse(match.isGroupAuthoritative());
+        Assertions.assertTrue(recipeLayoutManager.exists(version.resolve("scm.yaml")));
+        Assertions.assertFalse(recipeLayoutManager.exists(version.resolve("build.yaml")));
+        Assertions.assertNull(recipeLayoutManager.getArtifactPaths("io.quarkus", "quarkus-core", "1.2").orElseThrow()
+                .getVersion());
+    }
 }
@@ -0,0 +1,85 @@
+package com.redhat.hacbs.recipes.location;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RecipeRepositoryManagerTest {
+
+    @Test
+    public void testUpdateAppliesChanges(@TempDir Path remote, @TempDir Path local) throws Exception {
+        Path group = Path.of(RecipeRepositoryManager.SCM_INFO, "io", "quarkus");
+        try (Git git = Git.init().setDirectory(remote.toFile()).setInitialBranch("main").call()) {
+            Files.createDirectories(remote.resolve(group));
+            Files.writeString(remote.resolve(group).resolve("scm.yaml"), "");
+            commit(git, "initial");
+
+            RecipeRepositoryManager manager = RecipeRepositoryManager.create(remote.toUri().toString(), "main",
+                    Optional.empty(), local);
+            Set<Path> changed = new HashSet<>();
+            manager.addChangeListener(changed::addAll);
+            Assertions.assertNull(manager.getArtifactPaths("io.quarkus", "quarkus-core", "1.0").orElseThrow()
+                    .getVersion());
+
+            Path version = group.resolve(RecipeLayoutManager.VERSION).resolve("1.1");
+            Files.createDirectories(remote.resolve(version));
+            Files.writeString(remote.resolve(version).resolve("scm.yaml"), "");
+            commit(git, "add version");
+            manager.update();
+            Assertions.assertEquals(Set.of(local.resolve(version).resolve("scm.yaml")), changed);
+            Assertions.assertEquals(local.resolve(version),
+                    manager.getArtifactPaths("io.quarkus", "quarkus-core", "1.0").orElseThrow().getVersion());
+            Assertions.assertTrue(manager.exists(local.resolve(version).resolve("scm.yaml")));
+
+            changed.clear();
+            git.rm().addFilepattern(version.resolve("scm.yaml").toString()).call();
+            commit(git, "remove version");
+            manager.update();
+            Assertions.assertEquals(Set.of(local.resolve(version).resolve("scm.yaml")), changed);
+            Assertions.assertNull(manager.getArtifactPaths("io.quarkus", "quarkus-core", "1.0").orElseThrow()
+                    .getVersion());
+            Assertions.assertFalse(manager.exists(local.resolve(version).resolve("scm.yaml")));
+        }
+    }
+
+    @Test
+    public void testIntervalUpdateRunsInBackground(@TempDir Path remote, @TempDir Path local) throws Exception {
+        Path group = Path.of(RecipeRepositoryManager.SCM_INFO, "io", "quarkus");
+        try (Git git = Git.init().setDirectory(remote.toFile()).setInitialBranch("main").call()) {
+            Files.createDirectories(remote.resolve(group));
+            Files.writeString(remote.resolve(group).resolve("scm.yaml"), "");
+            commit(git, "initial");
+
+            RecipeRepositoryManager manager = RecipeRepositoryManager.create(remote.toUri().toString(), "main",
+                    Optional.of(Duration.ZERO), local);
+            CountDownLatch updated = new CountDownLatch(1);
+            manager.addChangeListener(files -> updated.countDown());
+
+            Path version = group.resolve(RecipeLayoutManager.VERSION).resolve("1.1");
+            Files.createDirectories(remote.resolve(version));
+            Files.writeString(remote.resolve(version).resolve("scm.yaml"), "");
+            commit(git, "add version");
+            Thread.sleep(5);
+            //the lookup starts the update, the result is applied once the pull has completed
+            manager.getArtifactPaths("io.quarkus", "quarkus-core", "1.0");
+            Assertions.assertTrue(updated.await(30, TimeUnit.SECONDS));
+            Assertions.assertEquals(local.resolve(version),
+                    manager.getArtifactPaths("io.quarkus", "quarkus-core", "1.0").orElseThrow().getVersion());
+        }
+    }
+
+    private static void commit(Git git, String message) throws Exception {
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage(message).setSign(false).call();
+    }
+}
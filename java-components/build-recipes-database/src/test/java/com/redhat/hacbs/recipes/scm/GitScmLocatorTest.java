@@ -1,13 +1,21 @@
 package com.redhat.hacbs.recipes.scm;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.eclipse.jgit.api.Git;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.redhat.hacbs.common.sbom.GAV;
+import com.redhat.hacbs.recipes.location.RecipeGroupManager;
+import com.redhat.hacbs.recipes.location.RecipeLayoutManager;
+import com.redhat.hacbs.recipes.location.RecipeRepositoryManager;
 
 class GitScmLocatorTest {
 
@@ -29,6 +37,32 @@ class GitScmLocatorTest {
         Assertions.assertEquals(tag.getRepoInfo().getUri(), "https://github.com/apache/commons-lang.git");
     }
 
+    @Test
+    void lookupScmInfoBatch(@TempDir Path code, @TempDir Path recipes) throws Exception {
+        try (Git git = Git.init().setDirectory(code.toFile()).setInitialBranch("main").call()) {
+            git.commit().setMessage("initial").setSign(false).setAllowEmpty(true).call();
+            git.tag().setName("1.0").call();
+            Path group = recipes.resolve(RecipeRepositoryManager.SCM_INFO).resolve("io/test");
+            Files.createDirectories(group);
+            Files.writeString(group.resolve("scm.yaml"), "uri: " + code.toUri() + "\ntype: git\n");
+
+            GitScmLocator locator = GitScmLocator.builder()
+                    .setRecipeGroupManager(new RecipeGroupManager(List.of(new RecipeLayoutManager(recipes))))
+                    .build();
+            var results = locator.resolveTagInfo(List.of(GAV.parse("io.test:core:1.0"), GAV.parse("io.test:api:1.0"),
+                    GAV.parse("io.test:core:2.0"), GAV.parse("io.other:core:1.0")));
+            Assertions.assertEquals(4, results.size());
+            var core = results.get(GAV.parse("io.test:core:1.0"));
+            Assertions.assertEquals("1.0", core.tagInfo().getTag());
+            Assertions.assertEquals(git.getRepository().resolve("1.0^{commit}").name(), core.tagInfo().getHash());
+            //artifacts of the same project are resolved once
+            Assertions.assertSame(core, results.get(GAV.parse("io.test:api:1.0")));
+            Assertions.assertNull(results.get(GAV.parse("io.test:core:2.0")).tagInfo());
+            Assertions.assertNotNull(results.get(GAV.parse("io.test:core:2.0")).error());
+            Assertions.assertNotNull(results.get(GAV.parse("io.other:core:1.0")).error());
+        }
+    }
+
     //test tag mapping heuristics
     @Test
     void runTagHeuristic() {
@@ -0,0 +1,181 @@
+package com.redhat.hacbs.recipes.scm;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TagCacheTest {
+
+    @Test
+    public void testTagsCachedUntilExpiry(@TempDir Path repo, @TempDir Path cacheDir) throws Exception {
+        try (Git git = Git.init().setDirectory(repo.toFile()).setInitialBranch("main").call()) {
+            git.commit().setMessage("initial").setSign(false).setAllowEmpty(true).call();
+            git.tag().setName("1.0").call();
+            String uri = repo.toUri().toString();
+
+            TagCache cache = new TagCache(Duration.ofHours(1), cacheDir);
+            Assertions.assertEquals(Map.of("1.0", git.getRepository().resolve("1.0^{commit}").name()),
+                    cache.getTags(uri).getTagsToHash());
+
+            git.tag().setName("1.1").call();
+            Assertions.assertFalse(cache.getTags(uri).contains("1.1"));
+            //a new cache over the same directory uses the persisted tags
+            Assertions.assertFalse(new TagCache(Duration.ofHours(1), cacheDir).getTags(uri).contains("1.1"));
+
+            //an expired entry is revalidated against the remote
+            Assertions.assertTrue(new TagCache(Duration.ZERO, cacheDir).getTags(uri).contains("1.1"));
+            Assertions.assertTrue(new TagCache(Duration.ofHours(1), cacheDir).getTags(uri).contains("1.1"));
+        }
+    }
+
+    @Test
+    public void testRevalidation() {
+        AtomicInteger calls = new AtomicInteger();
+        Map<String, String> tags = Map.of("1.0", "abc");
+        TagCache cache = new TagCache(Duration.ZERO, null, TagCache.MAX_TAGS, Clock.systemUTC(), uri -> {
+            if (calls.incrementAndGet() > 2) {
+                throw new RuntimeException("remote unavailable");
+            }
+            return tags;
+        });
+        TagIndex first = cache.getTags("https://example.com/repo.git");
+        //unchanged tags keep the existing index
+        Assertions.assertSame(first, cache.getTags("https://example.com/repo.git"));
+        //stale tags are used if the remote is unavailable
+        Assertions.assertSame(first, cache.getTags("https://example.com/repo.git"));
+        Assertions.assertEquals(3, calls.get());
+        Assertions.assertThrows(RuntimeException.class, () -> cache.getTags("https://example.com/other.git"));
+    }
+
+    @Test
+    public void testFailedRevalidationBacksOff() {
+        AtomicInteger calls = new AtomicInteger();
+        FakeClock clock = new FakeClock();
+        TagCache cache = new TagCache(Duration.ofMinutes(10), null, TagCache.MAX_TAGS, clock, uri -> {
+            if (calls.incrementAndGet() > 1) {
+                throw new RuntimeException("remote unavailable");
+            }
+            return Map.of("1.0", "abc");
+        });
+        TagIndex first = cache.getTags("https://example.com/repo.git");
+        clock.advance(Duration.ofMinutes(11));
+        Assertions.assertSame(first, cache.getTags("https://example.com/repo.git"));
+        Assertions.assertEquals(2, calls.get());
+        //the failing remote is not queried again until the time to live has passed since the failure
+        clock.advance(Duration.ofMinutes(9));
+        Assertions.assertSame(first, cache.getTags("https://example.com/repo.git"));
+        Assertions.assertEquals(2, calls.get());
+        clock.advance(Duration.ofMinutes(2));
+        Assertions.assertSame(first, cache.getTags("https://example.com/repo.git"));
+        Assertions.assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void testEviction(@TempDir Path cacheDir) throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        FakeClock clock = new FakeClock();
+        TagCache cache = new TagCache(Duration.ofHours(1), cacheDir, 2, clock, uri -> {
+            calls.incrementAndGet();
+            return Map.of("1.0", uri);
+        });
+        cache.getTags("https://example.com/a.git");
+        cache.getTags("https://example.com/b.git");
+        cache.getTags("https://example.com/a.git");
+        cache.getTags("https://example.com/c.git");
+        Assertions.assertEquals(3, calls.get());
+        try (var files = Files.list(cacheDir)) {
+            Assertions.assertEquals(2, files.count());
+        }
+        //the least recently used entry was discarded, along with its file
+        cache.getTags("https://example.com/a.git");
+        Assertions.assertEquals(3, calls.get());
+        cache.getTags("https://example.com/b.git");
+        Assertions.assertEquals(4, calls.get());
+
+        //a cache with a smaller limit prunes the directory on startup
+        new TagCache(Duration.ofHours(1), cacheDir, 1, clock, uri -> Map.of());
+        try (var files = Files.list(cacheDir)) {
+            Assertions.assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void testEvictionByTagCount() {
+        TagCache cache = new TagCache(Duration.ofHours(1), null, 5, new FakeClock(), uri -> {
+            if (uri.endsWith("big.git")) {
+                return Map.of("1.0", "a", "1.1", "b", "1.2", "c", "1.3", "d");
+            }
+            return Map.of("1.0", "a");
+        });
+        cache.getTags("https://example.com/a.git");
+        cache.getTags("https://example.com/b.git");
+        cache.getTags("https://example.com/big.git");
+        //the four tags of the big repository push out the least recently used small one
+        Assertions.assertEquals(5, cache.totalTags());
+        cache.getTags("https://example.com/a.git");
+        Assertions.assertEquals(5, cache.totalTags());
+        cache.getTags("https://example.com/b.git");
+        //b was evicted when a was fetched again, so fetching b again evicts big rather than a
+        Assertions.assertEquals(2, cache.totalTags());
+        //a repository over the limit on its own is still cached
+        TagCache small = new TagCache(Duration.ofHours(1), null, 2, new FakeClock(),
+                uri -> Map.of("1.0", "a", "1.1", "b", "1.2", "c"));
+        small.getTags("https://example.com/big.git");
+        Assertions.assertEquals(3, small.totalTags());
+    }
+
+    @Test
+    public void testInvalidateRepository(@TempDir Path cacheDir) throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        TagCache cache = new TagCache(Duration.ofHours(1), cacheDir, TagCache.MAX_TAGS, new FakeClock(), uri -> {
+            calls.incrementAndGet();
+            return Map.of("1.0", uri);
+        });
+        cache.getTags("https://example.com/a.git");
+        cache.getTags("https://example.com/b.git");
+        cache.invalidate("https://example.com/a.git");
+        try (var files = Files.list(cacheDir)) {
+            Assertions.assertEquals(1, files.count());
+        }
+        //only the invalidated repository is fetched again
+        cache.getTags("https://example.com/a.git");
+        cache.getTags("https://example.com/b.git");
+        Assertions.assertEquals(3, calls.get());
+        Assertions.assertEquals(2, cache.totalTags());
+    }
+
+    static class FakeClock extends Clock {
+
+        Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
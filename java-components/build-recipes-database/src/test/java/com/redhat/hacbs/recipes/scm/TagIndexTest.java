@@ -0,0 +1,34 @@
+package com.redhat.hacbs.recipes.scm;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TagIndexTest {
+
+    private static final List<String> TAGS = List.of("1.0", "v1.0", "1.0.0", "1.0.1", "1.0.Alpha1", "rel/1.0-rc1",
+            "antlr4-master-4.9.3", "4.9.3-rc1", "4.9.3", "LANG_2_5", "2", "v2.5", "commons-lang-2.5");
+
+    private static final List<String> VERSIONS = List.of("1.0", "1.0.Final", "4.9.3", "2_5", "2.5", "2", "9", "1.0.1.Final");
+
+    //the index must give the same results as checking every tag
+    @Test
+    void testMatchesScan() {
+        Map<String, String> tagsToHash = new HashMap<>();
+        TAGS.forEach(t -> tagsToHash.put(t, ""));
+        TagIndex index = new TagIndex(tagsToHash);
+        for (var version : VERSIONS) {
+            Set<String> containing = TAGS.stream().filter(t -> !t.equals(version) && t.contains(version))
+                    .collect(Collectors.toSet());
+            Set<String> containedIn = TAGS.stream().filter(t -> !t.equals(version) && version.contains(t))
+                    .collect(Collectors.toSet());
+            Assertions.assertEquals(containing, index.tagsContaining(version), version);
+            Assertions.assertEquals(containedIn, index.tagsContainedIn(version), version);
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package com.redhat.hacbs.container.analyser.dependencies;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
 
@@ -28,6 +36,7 @@ import com.google.cloud.tools.jib.registry.RegistryClient;
 import com.google.cloud.tools.jib.registry.credentials.CredentialRetrievalException;
 import com.redhat.hacbs.classfile.tracker.NoCloseInputStream;
 import com.redhat.hacbs.classfile.tracker.TrackingData;
+import com.redhat.hacbs.classfile.tracker.TrackingDataIndex;
 import com.redhat.hacbs.container.deploy.containerregistry.ContainerUtil;
 
 import io.quarkus.arc.Unremovable;
@@ -45,8 +54,17 @@ public class AnalyseImage extends AnalyserBase {
     @CommandLine.Option(names = { "--base-image", "-b" }, required = false)
     Optional<String> baseImage;
 
+    /**
+     * A directory to cache the results of analysing each layer in. Layers are immutable, so the results are keyed by
+     * the layer digest and never expire.
+     */
+    @CommandLine.Option(names = "--layer-cache")
+    Optional<Path> layerCache;
+
+    private static final int PIPE_BUFFER_SIZE = 1024 * 1024;
+
     void doAnalysis(Set<String> gavs, Set<TrackingData> trackingData) throws Exception {
-        Set<DescriptorDigest> layersToProcess = new HashSet<>();
+        Set<DescriptorDigest> layersToProcess = new LinkedHashSet<>();
         Log.infof("Processing image %s", image);
         RegistryClient client = extractLayers(image, layersToProcess::add);
         if (baseImage.isPresent()) {
@@ -54,25 +72,88 @@ public class AnalyseImage extends AnalyserBase {
             extractLayers(baseImage.get(), layersToProcess::remove);
         }
         Log.infof("Processing layers to extract: %s", layersToProcess);
-        for (var layer : layersToProcess) {
-            var blob = client.pullBlob(layer, s -> {
-            }, s -> {
-            });
-            Path targetFile = Files.createTempFile("layer", "layer");
+        //each layer uses one thread to analyse and one to download, the downloads are not bounded separately
+        //as an analysis thread always waits on its own download, so they cannot starve each other
+        ExecutorService analysisExecutor = Executors.newFixedThreadPool(Math.max(1, threads));
+        ExecutorService downloadExecutor = Executors.newCachedThreadPool();
+        try {
+            Map<DescriptorDigest, Future<TrackingDataIndex>> results = new LinkedHashMap<>();
+            for (var layer : layersToProcess) {
+                results.put(layer, analysisExecutor.submit(() -> analyseLayer(client, layer, downloadExecutor)));
+            }
+            //merge in manifest order so the results do not depend on which layer finished first
+            for (var e : results.entrySet()) {
+                try {
+                    var result = e.getValue().get();
+                    //gavs are not cached as they depend on the allowed sources, so they are worked out here
+                    handleTrackingData("layer " + e.getKey(), result.getTrackingData(), trackingData, gavs);
+                } catch (ExecutionException ex) {
+                    throw new RuntimeException("Failed to analyse layer " + e.getKey(), ex.getCause());
+                }
+            }
+        } finally {
+            analysisExecutor.shutdownNow();
+            downloadExecutor.shutdownNow();
+        }
+    }
 
-            try (OutputStream out = Files.newOutputStream(targetFile)) {
+    /**
+     * Analyses a single layer, using the cached results if there are any.
+     */
+    TrackingDataIndex analyseLayer(RegistryClient client, DescriptorDigest layer, ExecutorService downloadExecutor)
+            throws Exception {
+        Path cacheKey = layerCache.map(dir -> dir.resolve(layer.getHash())).orElse(null);
+        if (cacheKey != null) {
+            TrackingDataIndex cached = TrackingDataIndex.readSidecar(cacheKey);
+            if (cached != null && cached.getSha().equals(layer.toString())) {
+                Log.infof("Using cached results for layer %s", layer);
+                return cached;
+            }
+        }
+        TrackingDataIndex result = streamLayer(client, layer, downloadExecutor);
+        if (cacheKey != null) {
+            try {
+                Files.createDirectories(cacheKey.getParent());
+                result.write(cacheKey);
+            } catch (IOException e) {
+                Log.errorf(e, "Failed to cache results for layer %s", layer);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Analyses a single layer, streaming it from the registry without writing it to disk.
+     */
+    private TrackingDataIndex streamLayer(RegistryClient client, DescriptorDigest layer, ExecutorService downloadExecutor)
+            throws Exception {
+        Set<TrackingData> trackingData = new HashSet<>();
+        Set<String> gavs = new HashSet<>();
+        var blob = client.pullBlob(layer, s -> {
+        }, s -> {
+        });
+        PipedInputStream in = new PipedInputStream(PIPE_BUFFER_SIZE);
+        PipedOutputStream out = new PipedOutputStream(in);
+        Future<?> download = downloadExecutor.submit(() -> {
+            try (out) {
                 blob.writeTo(out);
             }
-            try (InputStream in = Files.newInputStream(targetFile)) {
-                GZIPInputStream inputStream = new GZIPInputStream(in);
-                TarArchiveInputStream tarArchiveInputStream = new TarArchiveInputStream(inputStream);
-                for (TarArchiveEntry entry = tarArchiveInputStream
-                        .getNextEntry(); entry != null; entry = tarArchiveInputStream.getNextEntry()) {
-                    Log.debugf("Processing %s from layer %s", entry.getName(), layer.getHash());
-                    handleFile(entry.getName(), new NoCloseInputStream(tarArchiveInputStream), trackingData, gavs);
-                }
+            return null;
+        });
+        try (in) {
+            GZIPInputStream inputStream = new GZIPInputStream(in);
+            TarArchiveInputStream tarArchiveInputStream = new TarArchiveInputStream(inputStream);
+            for (TarArchiveEntry entry = tarArchiveInputStream
+                    .getNextEntry(); entry != null; entry = tarArchiveInputStream.getNextEntry()) {
+                Log.debugf("Processing %s from layer %s", entry.getName(), layer.getHash());
+                handleFile(entry.getName(), new NoCloseInputStream(tarArchiveInputStream), trackingData, gavs);
             }
+            //the tar may be followed by padding, read it so the download can complete
+            in.transferTo(OutputStream.nullOutputStream());
         }
+        download.get();
+        //untracked class names are not needed by the analysis, so they are not collected or cached
+        return new TrackingDataIndex(layer.toString(), trackingData, Set.of());
     }
 
     RegistryClient extractLayers(String image, Consumer<DescriptorDigest> layerConsumer)
@@ -1,16 +1,22 @@
 package com.redhat.hacbs.container.analyser.dependencies;
 
-import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import jakarta.inject.Singleton;
 
+import com.redhat.hacbs.classfile.tracker.ClassFileTracker;
 import com.redhat.hacbs.classfile.tracker.TrackingData;
 
 import io.quarkus.arc.Unremovable;
@@ -25,25 +31,38 @@ public class AnalysePath extends AnalyserBase implements Runnable {
     @CommandLine.Parameters
     List<Path> paths;
 
-    void doAnalysis(Set<String> gavs, Set<TrackingData> trackingData) throws IOException {
+    void doAnalysis(Set<String> gavs, Set<TrackingData> trackingData) throws Exception {
         Log.infof("Root paths %s", paths);
-        for (var path : paths) {
-            Files.walkFileTree(path, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    if (!Files.exists(file)) {
-                        //if we have a symlink that points to nothing
-                        //just ignore it
-                        return FileVisitResult.CONTINUE;
-                    }
-                    try {
-                        return handleFile(file.getFileName().toString(), Files.newInputStream(file), trackingData, gavs);
-                    } catch (Exception e) {
-                        Log.errorf(e, "Failed to analyse %s", file);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            //results are merged in the order the files were visited, so the output does not depend on thread timing
+            Map<Path, Future<Set<TrackingData>>> results = new LinkedHashMap<>();
+            for (var path : paths) {
+                Files.walkFileTree(path, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (!Files.exists(file)) {
+                            //if we have a symlink that points to nothing
+                            //just ignore it
+                            return FileVisitResult.CONTINUE;
+                        }
+                        results.put(file, executor.submit(() -> {
+                            Log.debugf("Processing %s", file);
+                            return ClassFileTracker.readTrackingDataFromFile(file);
+                        }));
                         return FileVisitResult.CONTINUE;
                     }
+                });
+            }
+            for (var e : results.entrySet()) {
+                try {
+                    handleTrackingData(e.getKey().getFileName().toString(), e.getValue().get(), trackingData, gavs);
+                } catch (ExecutionException ex) {
+                    Log.errorf(ex.getCause(), "Failed to analyse %s", e.getKey());
                 }
-            });
+            }
+        } finally {
+            executor.shutdownNow();
         }
     }
 
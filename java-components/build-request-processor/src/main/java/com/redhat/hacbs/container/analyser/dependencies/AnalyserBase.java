@@ -2,7 +2,6 @@ package com.redhat.hacbs.container.analyser.dependencies;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -14,9 +13,6 @@ import java.util.Set;
 import jakarta.enterprise.inject.Instance;
 import jakarta.inject.Inject;
 
-import org.cyclonedx.CycloneDxSchema;
-import org.cyclonedx.generators.BomGeneratorFactory;
-import org.cyclonedx.generators.json.BomJsonGenerator;
 import org.cyclonedx.model.Bom;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -52,6 +48,12 @@ public abstract class AnalyserBase implements Runnable {
     @CommandLine.Option(names = "--publishers")
     Path publishers;
 
+    /**
+     * The number of threads to analyse with.
+     */
+    @CommandLine.Option(names = "--threads", defaultValue = "4")
+    int threads;
+
     /**
      * special mode for dealing with JvmImageScan pipelines
      * in this mode we want to merge the SBom with the tracking data
@@ -142,11 +144,11 @@ public abstract class AnalyserBase implements Runnable {
             }
         }
 
-        BomJsonGenerator generator = BomGeneratorFactory.createJson(CycloneDxSchema.VERSION_LATEST, bom);
-        String sbom = generator.toJsonString();
-        Log.infof("Generated SBOM:\n%s", sbom);
+        Log.infof("Generated SBOM with %d components", bom.getComponents().size());
         if (this.sbom != null) {
-            Files.writeString(this.sbom, sbom, StandardCharsets.UTF_8);
+            try (var out = Files.newOutputStream(this.sbom)) {
+                SBomGenerator.writeSBom(bom, out);
+            }
         }
     }
 
@@ -174,7 +176,12 @@ public abstract class AnalyserBase implements Runnable {
     FileVisitResult handleFile(String fileName, InputStream contents, Set<TrackingData> trackingData, Set<String> gavs)
             throws IOException {
         Log.debugf("Processing %s", fileName);
-        var jarData = ClassFileTracker.readTrackingDataFromFile(contents, fileName);
+        return handleTrackingData(fileName, ClassFileTracker.readTrackingDataFromFile(contents, fileName), trackingData,
+                gavs);
+    }
+
+    FileVisitResult handleTrackingData(String fileName, Set<TrackingData> jarData, Set<TrackingData> trackingData,
+            Set<String> gavs) {
         trackingData.addAll(jarData);
         for (var data : jarData) {
             if (data != null) {
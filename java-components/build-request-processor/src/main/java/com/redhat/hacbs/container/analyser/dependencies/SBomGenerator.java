@@ -1,21 +1,31 @@
 package com.redhat.hacbs.container.analyser.dependencies;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
+import org.cyclonedx.CycloneDxSchema;
 import org.cyclonedx.exception.ParseException;
+import org.cyclonedx.generators.json.BomJsonGenerator;
 import org.cyclonedx.model.Bom;
+import org.cyclonedx.model.BomReference;
 import org.cyclonedx.model.Component;
 import org.cyclonedx.model.Property;
 import org.cyclonedx.parsers.BomParserFactory;
+import org.cyclonedx.util.mixin.MixInBomReference;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultIndenter;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.redhat.hacbs.classfile.tracker.TrackingData;
 
 public class SBomGenerator {
@@ -23,7 +33,8 @@ public class SBomGenerator {
     public static Bom generateSBom(Set<TrackingData> trackingData, InputStream existing) {
         //now build a cyclone DX bom file
         final Bom bom;
-        Map<Identifier, Component> existingIds = new HashMap<>();
+        Map<Identifier, Component> existingIds = new LinkedHashMap<>();
+        Map<String, Component> existingPurls = new HashMap<>();
 
         //we may need to merge this into an existing bom
         if (existing != null) {
@@ -38,32 +49,28 @@ public class SBomGenerator {
             //basically the same thing, but one with name 'com.foo.bar' and no group-id, and one with name 'bar'
             //and group 'com.foo'
             //we just want the later form, if they are both there we remove the problematic one
-            for (var it = bom.getComponents().iterator(); it.hasNext();) {
-                var i = it.next();
-                Identifier identifier = new Identifier(i.getName(), i.getGroup(), i.getVersion());
-                if (existingIds.containsKey(identifier)) {
-                    it.remove();
-                } else {
-                    existingIds.put(identifier, i);
+            //the components are indexed first, rather than removed from the list one at a time, as that is
+            //quadratic for large images
+            if (bom.getComponents() != null) {
+                for (var i : bom.getComponents()) {
+                    existingIds.putIfAbsent(new Identifier(i.getName(), i.getGroup(), i.getVersion()), i);
                 }
             }
-            for (var it = bom.getComponents().iterator(); it.hasNext();) {
+            List<Component> components = new ArrayList<>(existingIds.size());
+            for (var it = existingIds.values().iterator(); it.hasNext();) {
                 var i = it.next();
-                if (i.getPurl() != null && i.getPurl().startsWith("pkg:maven")) {
-                    if (i.getGroup() == null && i.getName().contains(".")) {
-                        int lastDot = i.getName().lastIndexOf('.');
-                        String name = i.getName().substring(lastDot + 1);
-                        String group = i.getName().substring(0, lastDot);
-                        Identifier key = new Identifier(name, group, i.getVersion());
-                        if (existingIds.containsKey(key)) {
-                            //this is a duplicate, remove it
-                            it.remove();
-                            existingIds.remove(new Identifier(i.getName(), i.getGroup(), i.getVersion()));
-                        }
+                Identifier key = mavenIdentifier(i);
+                if (key != null && existingIds.containsKey(key)) {
+                    //this is a duplicate, remove it
+                    it.remove();
+                } else {
+                    components.add(i);
+                    if (i.getPurl() != null) {
+                        existingPurls.putIfAbsent(i.getPurl(), i);
                     }
                 }
             }
-
+            bom.setComponents(components);
         } else {
             bom = new Bom();
             bom.setComponents(new ArrayList<>());
@@ -75,50 +82,83 @@ public class SBomGenerator {
             String name = split[1];
             String version = split[2];
 
-            Component component = existingIds.get(new Identifier(name, group, version));
-            List<Property> properties = new ArrayList<>();
             Map<String, String> attributes = i.getAttributes();
+            String purl = String.format("pkg:maven/%s/%s@%s", group, name, version);
+            String classifier = attributes.get("classifier");
+            if (StringUtils.isNotBlank(classifier)) {
+                purl += String.format("?classifier=%s", classifier);
+            }
+            Component component = existingIds.get(new Identifier(name, group, version));
+            if (component == null) {
+                component = existingPurls.get(purl);
+            }
+            Map<String, Property> properties = new LinkedHashMap<>();
             if (component == null) {
                 component = new Component();
                 bom.getComponents().add(component);
+                existingPurls.put(purl, component);
                 component.setType(Component.Type.LIBRARY);
                 component.setGroup(group);
                 component.setName(name);
                 component.setVersion(version);
-                String purl = String.format("pkg:maven/%s/%s@%s", group, name, version);
-                String classifier = attributes.get("classifier");
-                if (StringUtils.isNotBlank(classifier)) {
-                    purl += String.format("?classifier=%s", classifier);
-                }
                 component.setPurl(purl);
             } else if (component.getProperties() != null) {
-                properties.addAll(component.getProperties());
+                for (var property : component.getProperties()) {
+                    addProperty(properties, property);
+                }
             }
             component.setPublisher(i.source);
-            for (var e : i.getAttributes().entrySet()) {
+            for (var e : attributes.entrySet()) {
                 if (!e.getKey().equals("classifier")) {
-                    Property property = new Property();
-                    property.setName("java:" + e.getKey());
-                    property.setValue(e.getValue());
-                    properties.add(property);
+                    addProperty(properties, "java:" + e.getKey(), e.getValue());
                 }
             }
 
-            Property packageTypeProperty = new Property();
-            packageTypeProperty.setName("package:type");
-            packageTypeProperty.setValue("maven");
-            properties.add(packageTypeProperty);
-
-            Property packageLanguageProperty = new Property();
-            packageLanguageProperty.setName("package:language");
-            packageLanguageProperty.setValue("java");
-            properties.add(packageLanguageProperty);
-            component.setProperties(properties);
+            addProperty(properties, "package:type", "maven");
+            addProperty(properties, "package:language", "java");
+            component.setProperties(new ArrayList<>(properties.values()));
 
         }
         return bom;
     }
 
+    /**
+     * Writes the BOM as JSON to the stream.
+     */
+    public static void writeSBom(Bom bom, OutputStream out) throws IOException {
+        new StreamingBomJsonGenerator(bom).writeTo(out);
+    }
+
+    /**
+     * If this is a maven component where syft has put the group into the name, returns the identifier the component
+     * should have had.
+     */
+    private static Identifier mavenIdentifier(Component component) {
+        if (component.getPurl() == null || !component.getPurl().startsWith("pkg:maven") || component.getGroup() != null
+                || component.getName() == null || !component.getName().contains(".")) {
+            return null;
+        }
+        int lastDot = component.getName().lastIndexOf('.');
+        String name = component.getName().substring(lastDot + 1);
+        String group = component.getName().substring(0, lastDot);
+        return new Identifier(name, group, component.getVersion());
+    }
+
+    private static void addProperty(Map<String, Property> properties, String name, String value) {
+        Property property = new Property();
+        property.setName(name);
+        property.setValue(value);
+        addProperty(properties, property);
+    }
+
+    /**
+     * Adds the property unless an identical one is already present, so merging the same data twice does not duplicate
+     * properties.
+     */
+    private static void addProperty(Map<String, Property> properties, Property property) {
+        properties.putIfAbsent(property.getName() + "=" + property.getValue(), property);
+    }
+
     static class Identifier {
         final String name;
         final String groupId;
@@ -147,4 +187,24 @@ public class SBomGenerator {
             return Objects.hash(name, groupId, version);
         }
     }
+
+    /**
+     * Writes the BOM straight to a stream, so large SBOMs are not built up as a string first. The mapper is set up
+     * the same way {@link BomJsonGenerator#toJsonString()} sets it up, so the output is identical.
+     */
+    private static class StreamingBomJsonGenerator extends BomJsonGenerator {
+
+        StreamingBomJsonGenerator(Bom bom) {
+            super(bom, CycloneDxSchema.VERSION_LATEST);
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            //toJson registers this mixin before every write, it is not part of the mapper setup
+            mapper.addMixIn(BomReference.class, MixInBomReference.class);
+            DefaultPrettyPrinter prettyPrinter = new DefaultPrettyPrinter();
+            prettyPrinter.indentArraysWith(DefaultIndenter.SYSTEM_LINEFEED_INSTANCE);
+            //the caller owns the stream
+            mapper.writer(prettyPrinter).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, bom);
+        }
+    }
 }
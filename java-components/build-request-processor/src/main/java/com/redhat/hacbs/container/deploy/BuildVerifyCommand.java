@@ -4,7 +4,6 @@ import static com.redhat.hacbs.classfile.tracker.TrackingData.extractClassifier;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -14,10 +13,15 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
@@ -28,13 +32,13 @@ import org.cyclonedx.Version;
 import org.cyclonedx.generators.BomGeneratorFactory;
 
 import com.redhat.hacbs.classfile.tracker.ClassFileTracker;
+import com.redhat.hacbs.classfile.tracker.HashingOutputStream;
 import com.redhat.hacbs.classfile.tracker.TrackingData;
 import com.redhat.hacbs.common.sbom.GAV;
 import com.redhat.hacbs.container.analyser.dependencies.SBomGenerator;
 import com.redhat.hacbs.container.results.ResultsUpdater;
 import com.redhat.hacbs.recipes.util.FileUtil;
 import com.redhat.hacbs.resources.model.v1alpha1.dependencybuildstatus.Contaminates;
-import com.redhat.hacbs.resources.util.HashUtil;
 
 import io.quarkus.logging.Log;
 import picocli.CommandLine;
@@ -78,6 +82,12 @@ public class BuildVerifyCommand implements Runnable {
     @CommandLine.Option(names = "--build-id")
     String buildId;
 
+    /**
+     * The number of threads used to scan and instrument the deployed artifacts.
+     */
+    @CommandLine.Option(names = "--threads", defaultValue = "4")
+    int threads;
+
     public BuildVerifyCommand(BeanManager beanManager,
             ResultsUpdater resultsUpdater) {
         this.beanManager = beanManager;
@@ -85,6 +95,7 @@ public class BuildVerifyCommand implements Runnable {
     }
 
     public void run() {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
         try {
             Set<String> gavs = new HashSet<>();
             Map<String, Set<String>> contaminatedPaths = new HashMap<>();
@@ -99,103 +110,66 @@ public class BuildVerifyCommand implements Runnable {
                 Log.warnf("No deployed artifacts found. Has the build been correctly configured to deploy?");
                 throw new RuntimeException("Deploy failed");
             }
-            Files.walkFileTree(deploymentPath, new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    Path path = deploymentPath.relativize(file);
-                    String name = path.toString();
-                    Optional<GAV> gav = getGav(name);
-                    if (gav.isPresent()) {
-                        var coords = gav.get().stringForm();
-                        gavs.add(coords);
-                        Log.debugf("Checking %s with GAV %s for contaminants", path.getFileName(), coords);
-                    } else {
-                        Log.debugf("Checking %s for contaminants", path.getFileName());
-                    }
-                    //we check every file as we also want to catch .tar.gz etc
-                    var info = ClassFileTracker.readTrackingDataFromFile(Files.newInputStream(file), name);
-                    for (var i : info) {
-                        Log.errorf("%s was contaminated by %s from %s", path.getFileName(), i.gav, i.source);
-                        if (ALLOWED_CONTAMINANTS.stream().noneMatch(a -> file.getFileName().toString().endsWith(a))) {
-                            int index = name.lastIndexOf("/");
-                            boolean allowed = allowedSources.contains(i.source);
-                            if (!allowed) {
-                                if (index != -1) {
-                                    contaminatedPaths.computeIfAbsent(name.substring(0, index),
-                                            s -> new HashSet<>()).add(i.gav);
-                                } else {
-                                    contaminatedPaths.computeIfAbsent("", s -> new HashSet<>()).add(i.gav);
-                                }
-                                toRemove.add(file.getParent());
+            //we check every file as we also want to catch .tar.gz etc
+            //the files are read in parallel, but the results are handled in the order they were found
+            Map<Path, Future<Set<TrackingData>>> scanned = scan(deploymentPath, executor);
+            for (var e : scanned.entrySet()) {
+                Path file = e.getKey();
+                Path path = deploymentPath.relativize(file);
+                String name = path.toString();
+                Optional<GAV> gav = getGav(name);
+                if (gav.isPresent()) {
+                    var coords = gav.get().stringForm();
+                    gavs.add(coords);
+                    Log.debugf("Checking %s with GAV %s for contaminants", path.getFileName(), coords);
+                } else {
+                    Log.debugf("Checking %s for contaminants", path.getFileName());
+                }
+                var info = getResult(e.getValue());
+                for (var i : info) {
+                    Log.errorf("%s was contaminated by %s from %s", path.getFileName(), i.gav, i.source);
+                    if (ALLOWED_CONTAMINANTS.stream().noneMatch(a -> file.getFileName().toString().endsWith(a))) {
+                        int index = name.lastIndexOf("/");
+                        boolean allowed = allowedSources.contains(i.source);
+                        if (!allowed) {
+                            if (index != -1) {
+                                contaminatedPaths.computeIfAbsent(name.substring(0, index),
+                                        s -> new HashSet<>()).add(i.gav);
+                            } else {
+                                contaminatedPaths.computeIfAbsent("", s -> new HashSet<>()).add(i.gav);
                             }
-                            gav.ifPresent(g -> contaminatedGavs.computeIfAbsent(i.gav, s -> {
-                                Contaminates contaminates = new Contaminates();
-                                contaminates.setGav(i.gav);
-                                contaminates.setAllowed(allowed);
-                                contaminates.setSource(i.source);
-                                contaminates.setBuildId(i.getAttributes().get(BUILD_ID));
-                                contaminates.setContaminatedArtifacts(new ArrayList<>());
-                                return contaminates;
-                            })
-                                    .getContaminatedArtifacts()
-                                    .add(g.getGroupId() + ":" + g.getArtifactId() + ":" + g.getVersion()));
-
-                        } else {
-                            Log.debugf("Ignoring contaminant for %s", file.getFileName());
+                            toRemove.add(file.getParent());
                         }
+                        gav.ifPresent(g -> contaminatedGavs.computeIfAbsent(i.gav, s -> {
+                            Contaminates contaminates = new Contaminates();
+                            contaminates.setGav(i.gav);
+                            contaminates.setAllowed(allowed);
+                            contaminates.setSource(i.source);
+                            contaminates.setBuildId(i.getAttributes().get(BUILD_ID));
+                            contaminates.setContaminatedArtifacts(new ArrayList<>());
+                            return contaminates;
+                        })
+                                .getContaminatedArtifacts()
+                                .add(g.getGroupId() + ":" + g.getArtifactId() + ":" + g.getVersion()));
 
-                    }
-                    if (gav.isPresent()) {
-                        //now add our own tracking data
-                        if (name.endsWith(".jar") && !name.endsWith("-sources.jar") && !name.endsWith("-javadoc.jar")) {
-                            jarFiles.put(file, gav.get());
-                        }
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
-            });
-            for (var e : jarFiles.entrySet()) {
-                Path file = e.getKey();
-                GAV gav = e.getValue();
-                try {
-                    String fileName = file.getFileName().toString();
-                    Path temp = file.getParent().resolve(fileName + ".temp");
-                    String classifier = extractClassifier(gav.getArtifactId(), gav.getVersion(), fileName);
-                    Map<String, String> attributes;
-                    if (StringUtils.isNotBlank(classifier)) {
-                        attributes = Map.of("scm-uri", scmUri, "scm-commit", commit, "hermetic",
-                            Boolean.toString(hermetic), BUILD_ID, buildId, "classifier", classifier);
                     } else {
-                        attributes = Map.of("scm-uri", scmUri, "scm-commit", commit, "hermetic",
-                            Boolean.toString(hermetic), BUILD_ID, buildId);
-                    }
-                    ClassFileTracker.addTrackingDataToJar(Files.newInputStream(file),
-                            new TrackingData(
-                                    gav.getGroupId() + ":" + gav.getArtifactId() + ":"
-                                            + gav.getVersion(),
-                                    "rebuilt",
-                                    attributes),
-                            Files.newOutputStream(temp), false);
-                    Files.delete(file);
-                    Files.move(temp, file);
-                    try (Stream<Path> pathStream = Files.list(file.getParent())) {
-                        pathStream.filter(s -> s.getFileName().toString().startsWith(fileName + "."))
-                                .forEach(f -> {
-                                    try {
-                                        Files.delete(f);
-                                    } catch (IOException ex) {
-                                        throw new RuntimeException(ex);
-                                    }
-                                });
+                        Log.debugf("Ignoring contaminant for %s", file.getFileName());
                     }
 
-                    Files.writeString(file.getParent().resolve(fileName + ".md5"),
-                            HashUtil.md5(Files.newInputStream(file)));
-                    Files.writeString(file.getParent().resolve(fileName + ".sha1"),
-                            HashUtil.sha1(Files.newInputStream(file)));
-                } catch (Exception ex) {
-                    Log.errorf(ex, "Failed to instrument %s", file);
                 }
+                if (gav.isPresent()) {
+                    //now add our own tracking data
+                    if (name.endsWith(".jar") && !name.endsWith("-sources.jar") && !name.endsWith("-javadoc.jar")) {
+                        jarFiles.put(file, gav.get());
+                    }
+                }
+            }
+            List<Future<?>> instrumented = new ArrayList<>();
+            for (var e : jarFiles.entrySet()) {
+                instrumented.add(executor.submit(() -> instrumentJar(e.getKey(), e.getValue())));
+            }
+            for (var i : instrumented) {
+                getResult(i);
             }
             for (var i : toRemove) {
                 Log.errorf("Removing %s as it is contaminated", i);
@@ -243,6 +217,84 @@ public class BuildVerifyCommand implements Runnable {
         } catch (Exception e) {
             Log.error("Deployment failed", e);
             throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Adds our own tracking data to the jar, and rewrites its checksums. The checksums are computed while the new jar is
+     * written, so it is not read again.
+     */
+    private void instrumentJar(Path file, GAV gav) {
+        try {
+            String fileName = file.getFileName().toString();
+            Path temp = file.getParent().resolve(fileName + ".temp");
+            String classifier = extractClassifier(gav.getArtifactId(), gav.getVersion(), fileName);
+            Map<String, String> attributes;
+            if (StringUtils.isNotBlank(classifier)) {
+                attributes = Map.of("scm-uri", scmUri, "scm-commit", commit, "hermetic",
+                    Boolean.toString(hermetic), BUILD_ID, buildId, "classifier", classifier);
+            } else {
+                attributes = Map.of("scm-uri", scmUri, "scm-commit", commit, "hermetic",
+                    Boolean.toString(hermetic), BUILD_ID, buildId);
+            }
+            HashingOutputStream out = new HashingOutputStream(Files.newOutputStream(temp), HashingOutputStream.MD5,
+                    HashingOutputStream.SHA_1);
+            try (out; var in = Files.newInputStream(file)) {
+                ClassFileTracker.addTrackingDataToJar(in,
+                        new TrackingData(
+                                gav.getGroupId() + ":" + gav.getArtifactId() + ":"
+                                        + gav.getVersion(),
+                                "rebuilt",
+                                attributes),
+                        out, false);
+            }
+            Files.delete(file);
+            Files.move(temp, file);
+            try (Stream<Path> pathStream = Files.list(file.getParent())) {
+                pathStream.filter(s -> s.getFileName().toString().startsWith(fileName + "."))
+                        .forEach(f -> {
+                            try {
+                                Files.delete(f);
+                            } catch (IOException ex) {
+                                throw new RuntimeException(ex);
+                            }
+                        });
+            }
+
+            Files.writeString(file.getParent().resolve(fileName + ".md5"), out.getHash(HashingOutputStream.MD5));
+            Files.writeString(file.getParent().resolve(fileName + ".sha1"), out.getHash(HashingOutputStream.SHA_1));
+        } catch (Exception ex) {
+            Log.errorf(ex, "Failed to instrument %s", file);
+        }
+    }
+
+    /**
+     * Walks the tree and reads the tracking data of every file on the executor.
+     *
+     * @return The results, in the order the files were visited
+     */
+    private Map<Path, Future<Set<TrackingData>>> scan(Path root, ExecutorService executor) throws IOException {
+        Map<Path, Future<Set<TrackingData>>> results = new LinkedHashMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                results.put(file, executor.submit(() -> ClassFileTracker.readTrackingDataFromFile(file)));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return results;
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
         }
     }
 
@@ -257,15 +309,12 @@ public class BuildVerifyCommand implements Runnable {
             Files.walkFileTree(buildInfoPath, new SimpleFileVisitor<>() {
                 @Override
                 public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    try (InputStream inputStream = Files.newInputStream(file)) {
-                        Set<TrackingData> ret = ClassFileTracker.readTrackingDataFromFile(inputStream,
-                                file.getFileName().toString());
-                        if (!ret.isEmpty()) {
-                            Log.infof("Found file at %s", file);
-                            data.addAll(ret);
-                        }
-                        return FileVisitResult.CONTINUE;
+                    Set<TrackingData> ret = ClassFileTracker.readTrackingDataFromFile(file);
+                    if (!ret.isEmpty()) {
+                        Log.infof("Found file at %s", file);
+                        data.addAll(ret);
                     }
+                    return FileVisitResult.CONTINUE;
                 }
             });
             var sbom = SBomGenerator.generateSBom(data, null);
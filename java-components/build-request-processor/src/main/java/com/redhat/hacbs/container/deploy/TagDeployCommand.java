@@ -48,6 +48,9 @@ public class TagDeployCommand implements Runnable {
     @CommandLine.Option(names = "--mvn-repo")
     String mvnRepo;
 
+    @CommandLine.Option(names = "--mvn-deploy-threads", defaultValue = "4")
+    int mvnDeployThreads;
+
     @ConfigProperty(name = "git.deploy.token")
     Optional<String> gitToken;
 
@@ -144,7 +147,7 @@ public class TagDeployCommand implements Runnable {
             if (isNotEmpty(mvnRepo)) {
                 // Maven Repo Deployment
                 MavenRepositoryDeployer deployer = new MavenRepositoryDeployer(mvnCtx, mvnUser, mvnPassword.orElse(""), mvnRepo,
-                    deploymentPath, codeArtifactRepository);
+                    deploymentPath, codeArtifactRepository, mvnDeployThreads);
                 deployer.deploy();
             }
 
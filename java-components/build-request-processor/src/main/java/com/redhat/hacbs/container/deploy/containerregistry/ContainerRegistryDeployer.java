@@ -287,6 +287,10 @@ public class ContainerRegistryDeployer {
                 + "@" + digest;
     }
 
+    /**
+     * The layers of the build image. Consumers of the image rely on this exact layout: the cache pulls the last layer as
+     * the artifacts, and the CLI and management console read the first two as the sources and logs.
+     */
     private List<Path> getLayers(Path artifacts, Path source, Path logs) {
         Log.debug("\n Container details:\n"
                 + "\t layer 1 (source) " + source.toString() + "\n"
@@ -5,11 +5,15 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.eclipse.jgit.api.PushCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.JGitInternalException;
+import org.eclipse.jgit.api.errors.TransportException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
@@ -22,7 +26,9 @@ import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.transport.TagOpt;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 
@@ -30,6 +36,8 @@ import io.quarkus.logging.Log;
 
 public abstract class Git {
 
+    static final String PREVIOUS_PUSH_REF = "refs/jbs/previous-push";
+
     protected CredentialsProvider credentialsProvider;
 
     protected boolean disableSSLVerification;
@@ -126,14 +134,7 @@ public abstract class Git {
             //var tagNameFromDescribe = jGit.describe().setTags(true).setTarget(commit).call();
             var objectId = ObjectId.fromString(commit);
             var jRepo = jGit.getRepository();
-            @SuppressWarnings("deprecation")
-            var tagName = jRepo.getRefDatabase().getRefsByPrefix(Constants.R_TAGS).stream().
-                filter(ref -> objectId.equals(jRepo.peel(ref).getPeeledObjectId()) || objectId.equals(ref.getObjectId())).
-                map(r -> r.getName().replace("refs/tags/", "")).
-                // Exclude our own tag format of tag-<uuid|commit> if we've previously run and fallen back to branch
-                // commit for the tag name.
-                filter(t -> !t.startsWith(commit)).
-                findFirst().orElse(null);
+            var tagName = findTag(jRepo, objectId, commit);
 
             if (tagName == null) {
                 // No tag found - might be using a branch; default to commit.
@@ -155,8 +156,7 @@ public abstract class Git {
                 jGit.rm().addFilepattern(getWorkflowPath()).call();
             }
             if (untracked) {
-                // setRenormalize configures line endings. JGit defaults to true while git defaults to false. Keep it as per CLI.
-                jGit.add().setRenormalize(false).addFilepattern(".").call();
+                stageChanges(jGit);
             }
             if (untracked || workflow) {
                 RevCommit revCommit = jGit.commit().setNoVerify(true).setAuthor("JBS", "").setMessage("JBS modifications for workflows and pre-build changes.").call();
@@ -169,6 +169,7 @@ public abstract class Git {
 
             Ref tagRefStable = null;
             if (!tagName.endsWith(imageId)) {
+                fetchPreviousPush(jGit, tagName + "-" + imageId);
                 // Avoid repeatedly concatenating the imageId to an existing tag.
                 tagRefStable = jGit.tag().setAnnotated(true).setName(tagName + "-" + imageId).setForceUpdate(true).call();
             }
@@ -209,6 +210,65 @@ public abstract class Git {
         }
     }
 
+    /**
+     * Finds a tag pointing at the commit, either directly or once peeled. If there are several the lowest name is
+     * used.
+     * <p>
+     * Refs whose peeled id is already known to the ref database are looked up through it, which is indexed for reftable
+     * repositories. Only tags that the ref database has not peeled (i.e. loose tags) need their objects reading to check
+     * them.
+     */
+    static String findTag(Repository jRepo, ObjectId objectId, String commit) throws IOException {
+        var refDatabase = jRepo.getRefDatabase();
+        Set<String> tags = new TreeSet<>();
+        for (var ref : refDatabase.getTipsWithSha1(objectId)) {
+            if (ref.getName().startsWith(Constants.R_TAGS)) {
+                tags.add(ref.getName().substring(Constants.R_TAGS.length()));
+            }
+        }
+        for (var ref : refDatabase.getRefsByPrefix(Constants.R_TAGS)) {
+            if (!ref.isPeeled() && objectId.equals(refDatabase.peel(ref).getPeeledObjectId())) {
+                tags.add(ref.getName().substring(Constants.R_TAGS.length()));
+            }
+        }
+        // Exclude our own tag format of tag-<uuid|commit> if we've previously run and fallen back to branch
+        // commit for the tag name.
+        return tags.stream().filter(t -> !t.startsWith(commit)).findFirst().orElse(null);
+    }
+
+    /**
+     * Stages the untracked and modified files, rather than re-adding the whole source tree.
+     */
+    static void stageChanges(org.eclipse.jgit.api.Git jGit) throws GitAPIException {
+        var status = jGit.status().call();
+        Set<String> changed = new TreeSet<>(status.getUntracked());
+        changed.addAll(status.getModified());
+        if (!changed.isEmpty()) {
+            // setRenormalize configures line endings. JGit defaults to true while git defaults to false. Keep it as per CLI.
+            var add = jGit.add().setRenormalize(false);
+            changed.forEach(add::addFilepattern);
+            add.call();
+        }
+    }
+
+    /**
+     * If an earlier build already pushed this tag, fetch it. The remote advertises the tag when pushing, and as its
+     * objects are then present locally they are not sent again, so the push only transfers new objects.
+     */
+    void fetchPreviousPush(org.eclipse.jgit.api.Git jGit, String tag) {
+        String ref = Constants.R_TAGS + tag;
+        try {
+            jGit.fetch().setRemote("origin").setCredentialsProvider(credentialsProvider).setTagOpt(TagOpt.NO_TAGS)
+                    .setRefSpecs(new RefSpec("+" + ref + ":" + PREVIOUS_PUSH_REF)).call();
+            Log.infof("Fetched %s from a previous push", tag);
+        } catch (TransportException e) {
+            // The tag has not been pushed before, so there is nothing to reuse
+            Log.debugf("No previous push of %s to fetch: %s", tag, e.getMessage());
+        } catch (GitAPIException | JGitInternalException e) {
+            Log.warnf(e, "Unable to fetch %s from a previous push", tag);
+        }
+    }
+
     /**
      * Parse an SCM URI to split into [user/org] and [repo] which will be concatenated
      * together for the new repository creation.
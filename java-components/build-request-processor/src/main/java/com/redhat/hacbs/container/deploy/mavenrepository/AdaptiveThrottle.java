@@ -0,0 +1,102 @@
+package com.redhat.hacbs.container.deploy.mavenrepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket whose rate is driven by the responses of the repository.
+ * <p>
+ * Every request takes a token. A throttled response halves the rate and empties the bucket, while each successful
+ * response raises the rate a little, so a busy repository is backed off from quickly and approached again slowly.
+ */
+class AdaptiveThrottle {
+
+    private final Clock clock;
+    private final double minRate;
+    private final double maxRate;
+    private final double capacity;
+
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * @param initialRate The number of requests per second to start with
+     * @param minRate The lowest rate throttling can reduce this to
+     * @param maxRate The highest rate successful requests can raise this to
+     * @param capacity The number of requests that can be made at once after a quiet period
+     */
+    AdaptiveThrottle(double initialRate, double minRate, double maxRate, int capacity) {
+        this(initialRate, minRate, maxRate, capacity, Clock.SYSTEM);
+    }
+
+    AdaptiveThrottle(double initialRate, double minRate, double maxRate, int capacity, Clock clock) {
+        this.clock = clock;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.capacity = Math.max(1, capacity);
+        this.rate = initialRate;
+        this.tokens = this.capacity;
+        this.lastRefill = clock.nanoTime();
+    }
+
+    /**
+     * Blocks until a request can be made.
+     */
+    void acquire() throws InterruptedException {
+        while (true) {
+            long wait;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                wait = (long) Math.ceil((1 - tokens) / rate * TimeUnit.SECONDS.toNanos(1));
+            }
+            clock.sleep(wait);
+        }
+    }
+
+    synchronized void onSuccess() {
+        refill();
+        rate = Math.min(maxRate, rate + 1 / rate);
+    }
+
+    synchronized void onThrottle() {
+        refill();
+        rate = Math.max(minRate, rate / 2);
+        tokens = 0;
+    }
+
+    synchronized double getRate() {
+        return rate;
+    }
+
+    private void refill() {
+        long now = clock.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+        lastRefill = now;
+    }
+
+    /**
+     * The source of time for the throttle, so tests do not depend on the wall clock.
+     */
+    interface Clock {
+
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+
+            @Override
+            public void sleep(long nanos) throws InterruptedException {
+                TimeUnit.NANOSECONDS.sleep(nanos);
+            }
+        };
+
+        long nanoTime();
+
+        void sleep(long nanos) throws InterruptedException;
+    }
+}
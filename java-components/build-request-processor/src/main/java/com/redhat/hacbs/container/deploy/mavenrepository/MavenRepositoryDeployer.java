@@ -1,5 +1,8 @@
 package com.redhat.hacbs.container.deploy.mavenrepository;
 
+import static org.apache.http.HttpStatus.SC_INTERNAL_SERVER_ERROR;
+import static org.apache.http.HttpStatus.SC_TOO_MANY_REQUESTS;
+
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.FileVisitResult;
@@ -7,10 +10,16 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.http.client.HttpResponseException;
 import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
 import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
@@ -22,6 +31,7 @@ import org.eclipse.aether.repository.LocalRepository;
 import org.eclipse.aether.repository.RemoteRepository;
 import org.eclipse.aether.util.repository.AuthenticationBuilder;
 
+import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.codeartifact.model.DeletePackageVersionsRequest;
 import com.amazonaws.services.codeartifact.model.PackageFormat;
 import com.amazonaws.services.codeartifact.model.ResourceNotFoundException;
@@ -32,6 +42,26 @@ import io.quarkus.bootstrap.resolver.maven.BootstrapMavenException;
 import io.quarkus.logging.Log;
 
 public class MavenRepositoryDeployer {
+
+    static final int DEFAULT_THREADS = 4;
+
+    /**
+     * The number of times a throttled request is retried before giving up.
+     */
+    private static final int MAX_THROTTLED_ATTEMPTS = 10;
+
+    /**
+     * The number of times a failed deployment is attempted before giving up.
+     */
+    private static final int MAX_FAILED_ATTEMPTS = 3;
+
+    private static final long RETRY_DELAY_MS = 1000;
+
+    // Requests per second, the rate adapts to the repository between these limits
+    private static final double INITIAL_RATE = 10;
+    private static final double MIN_RATE = 0.1;
+    private static final double MAX_RATE = 50;
+
     private final String username;
 
     private final String password;
@@ -46,9 +76,19 @@ public class MavenRepositoryDeployer {
 
     private final CodeArtifactRepository codeArtifactRepository;
 
+    private final int threads;
+
+    private final AdaptiveThrottle throttle;
+
     public MavenRepositoryDeployer(BootstrapMavenContext mvnCtx, String username, String password, String repository,
             Path artifacts, CodeArtifactRepository codeArtifactRepository)
             throws BootstrapMavenException {
+        this(mvnCtx, username, password, repository, artifacts, codeArtifactRepository, DEFAULT_THREADS);
+    }
+
+    public MavenRepositoryDeployer(BootstrapMavenContext mvnCtx, String username, String password, String repository,
+            Path artifacts, CodeArtifactRepository codeArtifactRepository, int threads)
+            throws BootstrapMavenException {
         this.username = username;
         this.password = password;
         this.repository = repository;
@@ -56,6 +96,8 @@ public class MavenRepositoryDeployer {
 
         this.system = mvnCtx.getRepositorySystem();
         this.codeArtifactRepository = codeArtifactRepository;
+        this.threads = Math.max(1, threads);
+        this.throttle = new AdaptiveThrottle(INITIAL_RATE, MIN_RATE, MAX_RATE, this.threads);
         this.session = MavenRepositorySystemUtils.newSession();
 
         Log.infof("Maven credentials are username '%s' and repository '%s'", username, repository);
@@ -64,6 +106,10 @@ public class MavenRepositoryDeployer {
         session.setLocalRepositoryManager(system.newLocalRepositoryManager(session, new LocalRepository(artifacts.toFile())));
     }
 
+    /**
+     * Deploys every GAV in the artifacts directory. Each GAV is a separate deploy request, and up to the configured
+     * number of them are deployed at once.
+     */
     public void deploy()
             throws IOException {
         RemoteRepository distRepo = new RemoteRepository.Builder("repo",
@@ -73,107 +119,189 @@ public class MavenRepositoryDeployer {
                         .addPassword(password).build())
                 .build();
 
-        Files.walkFileTree(artifacts,
-                new SimpleFileVisitor<>() {
-
-                    @Override
-                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
-                            throws IOException {
-                        try (var stream = Files.list(dir)) {
-                            List<Path> files = stream.sorted().toList();
-                            boolean hasPom = files.stream().anyMatch(s -> s.toString().endsWith(".pom"));
-                            if (hasPom) {
-
-                                Path relative = artifacts.relativize(dir);
-                                String group = relative.getParent().getParent().toString().replace(File.separatorChar,
-                                        '.');
-                                String artifact = relative.getParent().getFileName().toString();
-                                String version = dir.getFileName().toString();
-                                Log.info(
-                                        "GROUP: " + group + " , ARTIFACT:" + artifact + " , VERSION: "
-                                                + version);
-                                Pattern p = Pattern
-                                        .compile(artifact + "-" + version + "(-(\\w+))?\\.(\\w+)");
-
-                                DeployRequest deployRequest = new DeployRequest();
-                                deployRequest.setRepository(distRepo);
-                                for (var i : files) {
-                                    Matcher matcher = p.matcher(i.getFileName().toString());
-                                    if (matcher.matches()) {
-                                        Artifact jarArtifact = new DefaultArtifact(group, artifact,
-                                                matcher.group(2),
-                                                matcher.group(3),
-                                                version);
-                                        jarArtifact = jarArtifact.setFile(i.toFile());
-                                        deployRequest.addArtifact(jarArtifact);
-
-                                        if (codeArtifactRepository != null) {
-                                            handleThrottling(() -> {
-                                                try {
-                                                    DeletePackageVersionsRequest request = new DeletePackageVersionsRequest()
-                                                            .withPackage(artifact)
-                                                            .withRepository(codeArtifactRepository.repository())
-                                                            .withDomain(codeArtifactRepository.domain())
-                                                            .withFormat(PackageFormat.Maven)
-                                                            .withNamespace(group)
-                                                            .withVersions(version);
-                                                    var result = codeArtifactRepository.client().deletePackageVersions(request);
-                                                    Log.infof("Deleted packages %s", result);
-                                                } catch (ResourceNotFoundException e) {
-                                                    //not found
-                                                }
-                                            });
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> deployments = new ArrayList<>();
+        try {
+            Files.walkFileTree(artifacts,
+                    new SimpleFileVisitor<>() {
+
+                        @Override
+                        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                                throws IOException {
+                            try (var stream = Files.list(dir)) {
+                                List<Path> files = stream.sorted().toList();
+                                boolean hasPom = files.stream().anyMatch(s -> s.toString().endsWith(".pom"));
+                                if (hasPom) {
+
+                                    Path relative = artifacts.relativize(dir);
+                                    String group = relative.getParent().getParent().toString().replace(File.separatorChar,
+                                            '.');
+                                    String artifact = relative.getParent().getFileName().toString();
+                                    String version = dir.getFileName().toString();
+                                    Log.info(
+                                            "GROUP: " + group + " , ARTIFACT:" + artifact + " , VERSION: "
+                                                    + version);
+                                    Pattern p = Pattern
+                                            .compile(artifact + "-" + version + "(-(\\w+))?\\.(\\w+)");
+
+                                    DeployRequest deployRequest = new DeployRequest();
+                                    deployRequest.setRepository(distRepo);
+                                    for (var i : files) {
+                                        Matcher matcher = p.matcher(i.getFileName().toString());
+                                        if (matcher.matches()) {
+                                            Artifact jarArtifact = new DefaultArtifact(group, artifact,
+                                                    matcher.group(2),
+                                                    matcher.group(3),
+                                                    version);
+                                            jarArtifact = jarArtifact.setFile(i.toFile());
+                                            deployRequest.addArtifact(jarArtifact);
                                         }
                                     }
+                                    if (!deployRequest.getArtifacts().isEmpty()) {
+                                        deployments.add(executor.submit(() -> deploy(deployRequest, group, artifact, version)));
+                                    }
+                                } else {
+                                    if (files.stream().anyMatch(p -> !p.toFile().isDirectory())) {
+                                        Log.warnf("For directory %s, no pom file found with files %s", dir,
+                                                files);
+                                    }
                                 }
 
-                                try {
-                                    Log.infof("Deploying %s", deployRequest);
-                                    system.deploy(session, deployRequest);
-                                } catch (DeploymentException e) {
-                                    throw new RuntimeException(e);
-                                }
-                            } else {
-                                if (files.stream().anyMatch(p -> !p.toFile().isDirectory())) {
-                                    Log.warnf("For directory %s, no pom file found with files %s", dir,
-                                            files);
-                                }
+                                return FileVisitResult.CONTINUE;
                             }
-
-                            return FileVisitResult.CONTINUE;
                         }
+
+                    });
+            for (var i : deployments) {
+                try {
+                    i.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
                     }
+                    throw new RuntimeException(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-                });
+    private void deploy(DeployRequest deployRequest, String group, String artifact, String version) {
+        if (codeArtifactRepository != null) {
+            withRetries("deleting " + group + ":" + artifact + ":" + version, () -> {
+                try {
+                    DeletePackageVersionsRequest request = new DeletePackageVersionsRequest()
+                            .withPackage(artifact)
+                            .withRepository(codeArtifactRepository.repository())
+                            .withDomain(codeArtifactRepository.domain())
+                            .withFormat(PackageFormat.Maven)
+                            .withNamespace(group)
+                            .withVersions(version);
+                    var result = codeArtifactRepository.client().deletePackageVersions(request);
+                    Log.infof("Deleted packages %s", result);
+                } catch (ResourceNotFoundException e) {
+                    //not found
+                }
+            });
+        }
+        withRetries("deploying " + deployRequest.getArtifacts(), () -> {
+            Log.infof("Deploying %s", deployRequest);
+            system.deploy(session, deployRequest);
+        });
     }
 
-    private void handleThrottling(Runnable task) {
-        for (int i = 0; i < 10; ++i) {
+    /**
+     * Runs the task at the rate the repository allows. Throttled requests are retried once the throttle lets them
+     * through again, and server errors and I/O failures are retried a few times after a short delay. Other failures,
+     * such as authentication errors or conflicts, are not retried.
+     */
+    private void withRetries(String description, DeployTask task) {
+        int failures = 0;
+        for (int attempt = 1;; ++attempt) {
             try {
+                throttle.acquire();
                 task.run();
+                throttle.onSuccess();
                 return;
-            } catch (RuntimeException e) {
-                if (!isThrottle(e)) {
-                    throw e;
-                }
-            }
-            try {
-                Thread.sleep(i * 10000);
             } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (DeploymentException | RuntimeException e) {
+                if (isThrottle(e)) {
+                    throttle.onThrottle();
+                    if (attempt < MAX_THROTTLED_ATTEMPTS) {
+                        Log.warnf("Throttled while %s, retrying at %.2f requests per second", description,
+                                throttle.getRate());
+                        continue;
+                    }
+                } else if (isRetryable(e) && ++failures < MAX_FAILED_ATTEMPTS) {
+                    Log.warnf(e, "Failed %s, retrying", description);
+                    try {
+                        Thread.sleep(failures * RETRY_DELAY_MS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new RuntimeException(ex);
+                    }
+                    continue;
+                }
+                if (e instanceof RuntimeException) {
+                    throw (RuntimeException) e;
+                }
                 throw new RuntimeException(e);
             }
         }
     }
 
-    private boolean isThrottle(RuntimeException e) {
-        Throwable ex = e;
-        while (ex != null) {
+    /**
+     * CodeArtifact API calls fail with a {@link ThrottlingException}, while uploads through the Maven resolver fail
+     * with an HTTP 429 status.
+     */
+    static boolean isThrottle(Throwable e) {
+        for (Throwable ex = e; ex != null; ex = ex.getCause()) {
             if (ex instanceof ThrottlingException) {
                 return true;
             }
-            ex = ex.getCause();
+        }
+        return statusCode(e) == SC_TOO_MANY_REQUESTS;
+    }
+
+    /**
+     * Server errors and I/O failures are worth retrying, while other HTTP errors (e.g. 401, 403 or 409) will not
+     * succeed on a retry.
+     */
+    static boolean isRetryable(Throwable e) {
+        int status = statusCode(e);
+        if (status != -1) {
+            return status >= SC_INTERNAL_SERVER_ERROR;
+        }
+        for (Throwable ex = e; ex != null; ex = ex.getCause()) {
+            if (ex instanceof IOException) {
+                return true;
+            }
         }
         return false;
     }
 
+    /**
+     * Returns the HTTP status of the first exception in the cause chain that has one, or -1 if there is none.
+     */
+    static int statusCode(Throwable e) {
+        for (Throwable ex = e; ex != null; ex = ex.getCause()) {
+            if (ex instanceof HttpResponseException) {
+                return ((HttpResponseException) ex).getStatusCode();
+            } else if (ex instanceof AmazonServiceException) {
+                return ((AmazonServiceException) ex).getStatusCode();
+            }
+        }
+        return -1;
+    }
+
+    private interface DeployTask {
+        void run() throws DeploymentException;
+    }
+
 }
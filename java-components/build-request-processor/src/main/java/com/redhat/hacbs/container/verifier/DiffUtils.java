@@ -17,9 +17,9 @@ public class DiffUtils {
 
     public record DiffResults(Set<String> shared, Set<String> added, Set<String> deleted,
             Map<String, DiffResult<?>> diffResults,
-            List<String> results) {
+            List<Difference> results) {
         public DiffResults(Set<String> shared, Set<String> added, Set<String> deleted, Map<String, DiffResult<?>> diffResults,
-                List<String> results) {
+                List<Difference> results) {
             this.shared = Set.copyOf(shared);
             this.added = Set.copyOf(added);
             this.deleted = Set.copyOf(deleted);
@@ -28,11 +28,22 @@ public class DiffUtils {
         }
     }
 
-    public static <T extends AsmDiffable<T>> DiffResults diff(String oldName, String newName, String type, Map<String, T> left,
-            Map<String, T> right) {
-        var results = new ArrayList<String>();
-        var oname = oldName.replace('/', '.');
-        var nname = newName.replace('/', '.');
+    /**
+     * @param className The class that is being compared, or null if the entries are classes
+     */
+    public static <T extends AsmDiffable<T>> DiffResults diff(String oldFileName, String newFileName, String className,
+            String type, Map<String, T> left, Map<String, T> right) {
+        return diff(oldFileName, newFileName, className, type, left, right, true);
+    }
+
+    /**
+     * @param className The class that is being compared, or null if the entries are classes
+     * @param diffShared If the entries present on both sides should be compared, if this is false
+     *        {@link DiffResults#diffResults()} will be empty
+     */
+    public static <T extends AsmDiffable<T>> DiffResults diff(String oldFileName, String newFileName, String className,
+            String type, Map<String, T> left, Map<String, T> right, boolean diffShared) {
+        var results = new ArrayList<Difference>();
         var shared = (Set<String>) new LinkedHashSet<String>();
         var deleted = (Set<String>) new LinkedHashSet<String>();
         left.keySet().forEach(key -> {
@@ -44,18 +55,23 @@ public class DiffUtils {
         });
         var added = right.keySet().stream().filter(key -> !left.containsKey(key))
                 .collect(Collectors.toCollection(LinkedHashSet::new));
-        added.forEach(key -> results.add(String.format("+:%s:%s:%s", nname, type, Objects.toString(right.get(key), key))));
-        deleted.forEach(key -> results.add(String.format("-:%s:%s:%s", oname, type, Objects.toString(left.get(key), key))));
+        added.forEach(key -> results
+                .add(Difference.added(newFileName, className, type, Objects.toString(right.get(key), key))));
+        deleted.forEach(key -> results
+                .add(Difference.removed(oldFileName, className, type, Objects.toString(left.get(key), key))));
         var diffResults = new LinkedHashMap<String, DiffResult<?>>();
-        shared.forEach(clazz -> {
-            var l = left.get(clazz);
-
-            if (l != null) {
+        if (diffShared) {
+            shared.forEach(clazz -> {
+                var l = left.get(clazz);
                 var r = right.get(clazz);
-                var diffResult = l.diff(r);
-                diffResults.put(clazz, diffResult);
-            }
-        });
+
+                //building a diff is expensive, and most entries are identical
+                if (l != null && !l.equals(r)) {
+                    var diffResult = l.diff(r);
+                    diffResults.put(clazz, diffResult);
+                }
+            });
+        }
         return new DiffResults(shared, added, deleted, diffResults, results);
     }
 }
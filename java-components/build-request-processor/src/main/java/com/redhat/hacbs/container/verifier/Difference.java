@@ -0,0 +1,69 @@
+package com.redhat.hacbs.container.verifier;
+
+/**
+ * A single difference found when verifying a jar.
+ * <p>
+ * The string form of a difference is what exclude patterns are matched against and what is reported, so it must stay
+ * stable. The format is {@code +:<file>[:<class>]:<type>:<name>} for additions, {@code -:...} for removals and
+ * {@code ^:<file>:<class>:<name>:<from>><to>} for changes.
+ *
+ * @param kind The kind of difference
+ * @param fileName The name of the jar
+ * @param className The class the difference is in, or null for classes that were added or removed
+ * @param type The type of element that differs, e.g. class, field or method
+ * @param name The name of the element that differs, for changes to a class this is the attribute that changed
+ * @param from The original value, only present for changes
+ * @param to The new value, only present for changes
+ */
+public record Difference(Kind kind, String fileName, String className, String type, String name, String from,
+        String to) {
+
+    public static final String CLASS = "class";
+
+    public static final String VERSION = "version";
+
+    public Difference {
+        className = className != null ? className.replace('/', '.') : null;
+    }
+
+    public static Difference added(String fileName, String className, String type, String name) {
+        return new Difference(Kind.ADDED, fileName, className, type, name, null, null);
+    }
+
+    public static Difference removed(String fileName, String className, String type, String name) {
+        return new Difference(Kind.REMOVED, fileName, className, type, name, null, null);
+    }
+
+    public static Difference changed(String fileName, String className, String type, String name, String from,
+            String to) {
+        return new Difference(Kind.CHANGED, fileName, className, type, name, from, to);
+    }
+
+    public boolean isClassRemoved() {
+        return kind == Kind.REMOVED && className == null && CLASS.equals(type);
+    }
+
+    public boolean isClassVersionChanged() {
+        return kind == Kind.CHANGED && CLASS.equals(type) && VERSION.equals(name);
+    }
+
+    @Override
+    public String toString() {
+        if (kind == Kind.CHANGED) {
+            return kind.symbol + ":" + fileName + ":" + className + ":" + name + ":" + from + ">" + to;
+        }
+        return kind.symbol + ":" + fileName + (className != null ? ":" + className : "") + ":" + type + ":" + name;
+    }
+
+    public enum Kind {
+        ADDED('+'),
+        REMOVED('-'),
+        CHANGED('^');
+
+        private final char symbol;
+
+        Kind(char symbol) {
+            this.symbol = symbol;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import static org.apache.commons.io.FilenameUtils.normalize;
 import static org.apache.http.HttpStatus.SC_OK;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -13,7 +14,10 @@ import java.util.jar.JarInputStream;
 import java.util.regex.Pattern;
 
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.apache.maven.index.artifact.Gav;
 import org.apache.maven.index.artifact.M2GavCalculator;
 import org.apache.maven.model.Model;
@@ -39,6 +43,10 @@ public class MavenUtils {
 
     public static final String TARGET = "target";
 
+    private static final int MAX_CONNECTIONS = 20;
+
+    private static volatile CloseableHttpClient httpClient;
+
     public static String gavToCoords(Gav gav) {
         var groupId = gav.getGroupId();
         var artifactId = gav.getArtifactId();
@@ -139,29 +147,74 @@ public class MavenUtils {
         if (uri.getScheme().equals("file")) {
             return Optional.of(Path.of(uri));
         }
-        try (var client = HttpClientBuilder.create().build()) {
-            Log.debugf("Getting URL %s", uri);
-            var get = new HttpGet(uri);
-
-            try (var response = client.execute(get)) {
-                var statusLine = response.getStatusLine();
-                var statusCode = statusLine.getStatusCode();
-
-                if (statusCode != SC_OK) {
-                    var reasonPhrase = statusLine.getReasonPhrase();
-                    Log.errorf("Unexpected status code %d (%s) for %s", statusCode, reasonPhrase, uri);
-                    return Optional.empty();
-                }
+        var tempDirectory = Files.createTempDirectory("verify-built-artifacts-");
+        var outputFile = tempDirectory.resolve(Path.of(uri.getPath()).getFileName());
+        Log.debugf("Saving to %s", outputFile);
+        var downloaded = false;
+        try {
+            try (var out = Files.newOutputStream(outputFile)) {
+                downloaded = downloadFile(uri, out);
+            }
+        } finally {
+            if (!downloaded) {
+                Files.deleteIfExists(outputFile);
+                Files.deleteIfExists(tempDirectory);
+            }
+        }
+        return downloaded ? Optional.of(outputFile) : Optional.empty();
+    }
+
+    /**
+     * Returns the URI of the SHA-1 checksum file for the given artifact URI, keeping any query parameters.
+     */
+    public static URI checksumUri(URI uri) {
+        var str = uri.toString();
+        var query = str.indexOf('?');
+        return query == -1 ? URI.create(str + ".sha1")
+                : URI.create(str.substring(0, query) + ".sha1" + str.substring(query));
+    }
+
+    /**
+     * Downloads the given URI to the output stream, using a client that is shared between all downloads so connections
+     * can be reused.
+     *
+     * @return false if the server did not return the file
+     */
+    public static boolean downloadFile(URI uri, OutputStream out) throws IOException {
+        Log.debugf("Getting URL %s", uri);
+        var get = new HttpGet(uri);
+
+        try (var response = httpClient().execute(get)) {
+            var statusLine = response.getStatusLine();
+            var statusCode = statusLine.getStatusCode();
+
+            if (statusCode != SC_OK) {
+                var reasonPhrase = statusLine.getReasonPhrase();
+                Log.errorf("Unexpected status code %d (%s) for %s", statusCode, reasonPhrase, uri);
+                EntityUtils.consumeQuietly(response.getEntity());
+                return false;
+            }
+
+            var entity = response.getEntity();
+            try (var content = entity.getContent()) {
+                content.transferTo(out);
+            }
+            return true;
+        }
+    }
 
-                var tempDirectory = Files.createTempDirectory("verify-built-artifacts-");
-                var outputFile = tempDirectory.resolve(Path.of(uri.getPath()).getFileName());
-                Log.debugf("Saving to %s", outputFile);
-                var entity = response.getEntity();
-                var content = entity.getContent();
-                Files.copy(content, outputFile);
-                return Optional.of(outputFile);
+    private static CloseableHttpClient httpClient() {
+        if (httpClient == null) {
+            synchronized (MavenUtils.class) {
+                if (httpClient == null) {
+                    var connectionManager = new PoolingHttpClientConnectionManager();
+                    connectionManager.setMaxTotal(MAX_CONNECTIONS);
+                    connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+                    httpClient = HttpClientBuilder.create().setConnectionManager(connectionManager).build();
+                }
             }
         }
+        return httpClient;
     }
 
     public static Optional<Path> downloadCoordinates(String baseUrl, String coords) throws IOException {
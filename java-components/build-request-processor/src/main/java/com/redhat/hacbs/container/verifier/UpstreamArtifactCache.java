@@ -0,0 +1,110 @@
+package com.redhat.hacbs.container.verifier;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+import com.redhat.hacbs.classfile.tracker.HashingOutputStream;
+
+import io.quarkus.logging.Log;
+
+/**
+ * A local cache of upstream artifacts, so repeated verification runs (e.g. retries of a failed build) do not need to
+ * download the same artifacts again.
+ * <p>
+ * Artifacts are stored by their SHA-1. The cache directory may be writable by the build being verified, so nothing in
+ * it is trusted: the SHA-1 of an artifact is always taken from the upstream {@code .sha1} file, and a cached artifact
+ * is only used if its contents still hash to it. A download that does not match the upstream checksum fails the
+ * lookup. Artifacts without an upstream checksum are downloaded every time. All writes are atomic so concurrent runs
+ * do not see partial files.
+ */
+public class UpstreamArtifactCache {
+
+    private static final int SHA1_LENGTH = 40;
+
+    private final Path artifacts;
+    private final Path temp;
+
+    public UpstreamArtifactCache(Path directory) throws IOException {
+        this.artifacts = directory.resolve("artifacts");
+        this.temp = directory.resolve("tmp");
+        Files.createDirectories(temp);
+    }
+
+    /**
+     * Returns the artifact at the given repository path, downloading it from the URI if it is not cached.
+     *
+     * @throws IOException if the downloaded artifact does not match the upstream checksum
+     */
+    public Optional<Path> resolve(String relativePath, URI uri) throws IOException {
+        var fileName = Path.of(relativePath).getFileName().toString();
+        var expected = upstreamSha(uri);
+
+        if (expected.isPresent()) {
+            var cached = artifactPath(expected.get(), fileName);
+            if (Files.isRegularFile(cached)) {
+                if (expected.get().equalsIgnoreCase(sha1(cached))) {
+                    Log.debugf("Using cached %s for %s", cached, relativePath);
+                    return Optional.of(cached);
+                }
+                Log.warnf("Cached %s does not match the upstream checksum, downloading it again", cached);
+            }
+        }
+
+        var tempFile = Files.createTempFile(temp, fileName, ".part");
+        try {
+            var out = new HashingOutputStream(Files.newOutputStream(tempFile));
+            try (out) {
+                if (!MavenUtils.downloadFile(uri, out)) {
+                    return Optional.empty();
+                }
+            }
+            var sha = out.getHash();
+            if (expected.isPresent() && !expected.get().equalsIgnoreCase(sha)) {
+                throw new IOException(
+                        "Checksum mismatch for " + uri + ", expected " + expected.get() + " but got " + sha);
+            }
+            var target = artifactPath(sha, fileName);
+            Files.createDirectories(target.getParent());
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Log.debugf("Cached %s as %s", relativePath, target);
+            return Optional.of(target);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Returns the SHA-1 published for the artifact, or empty if the repository does not have one.
+     */
+    private static Optional<String> upstreamSha(URI uri) throws IOException {
+        var out = new ByteArrayOutputStream();
+        if (!MavenUtils.downloadFile(MavenUtils.checksumUri(uri), out)) {
+            Log.debugf("No checksum available for %s", uri);
+            return Optional.empty();
+        }
+        //checksum files may also contain the file name after the hash
+        var contents = out.toString(StandardCharsets.UTF_8).trim();
+        var space = contents.indexOf(' ');
+        var sha = space == -1 ? contents : contents.substring(0, space);
+        return sha.length() == SHA1_LENGTH ? Optional.of(sha) : Optional.empty();
+    }
+
+    private Path artifactPath(String sha, String fileName) {
+        return artifacts.resolve(sha.substring(0, 2)).resolve(sha).resolve(fileName);
+    }
+
+    private static String sha1(Path file) throws IOException {
+        var out = new HashingOutputStream(OutputStream.nullOutputStream());
+        try (out; var in = Files.newInputStream(file)) {
+            in.transferTo(out);
+        }
+        return out.getHash();
+    }
+}
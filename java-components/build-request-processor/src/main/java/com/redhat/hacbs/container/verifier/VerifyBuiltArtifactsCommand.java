@@ -26,7 +26,8 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.regex.Pattern;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import jakarta.enterprise.inject.Instance;
 import jakarta.inject.Inject;
@@ -42,14 +43,6 @@ import picocli.CommandLine.Option;
 
 @Command(name = "verify-built-artifacts")
 public class VerifyBuiltArtifactsCommand implements Callable<Integer> {
-    private static final String CLASS_VERSION_CHANGED_REGEX = "^\\^:(?<fileName>[^:]+):(?<className>[^:]+):version:(?<fromVersion>[0-9.]+)>(?<toVersion>[0-9.]+)$";
-
-    private static final String CLASS_REMOVED_REGEX = "^-:(?<fileName>[^:]+):class:(?<className>[^:]+)$";
-
-    static final Pattern CLASS_VERSION_CHANGED_PATTERN = Pattern.compile(CLASS_VERSION_CHANGED_REGEX);
-
-    static final Pattern CLASS_REMOVED_PATTERN = Pattern.compile(CLASS_REMOVED_REGEX);
-
     static class LocalOptions {
         @Option(required = true, names = { "-of", "--original-file" })
         Path originalFile;
@@ -97,6 +90,21 @@ public class VerifyBuiltArtifactsCommand implements Callable<Integer> {
 
     @Option(names = { "--threads" }, defaultValue = "5")
     int threads;
+
+    /**
+     * If method bodies should be compared as well as signatures. This is off by default, as different compilers produce
+     * different bytecode for the same source.
+     */
+    @Option(names = { "--hash-instructions" })
+    boolean hashInstructions;
+
+    /**
+     * A directory to cache upstream artifacts in, this can be mounted to share it between runs.
+     */
+    @Option(names = { "--cache-dir" })
+    Path cacheDir;
+
+    UpstreamArtifactCache upstreamArtifactCache;
     @Inject
     Instance<ResultsUpdater> resultsUpdater;
 
@@ -111,14 +119,17 @@ public class VerifyBuiltArtifactsCommand implements Callable<Integer> {
         }
         ExecutorService executorService = Executors.newFixedThreadPool(threads);
         try {
-            var excludes = getExcludes();
+            if (cacheDir != null) {
+                upstreamArtifactCache = new UpstreamArtifactCache(cacheDir);
+            }
+            var excludes = JarInfo.excludes(getExcludes());
 
             if (options.localOptions.originalFile != null && options.localOptions.newFile != null) {
                 var numErrors = handleJar(options.localOptions.originalFile, options.localOptions.newFile, excludes);
                 return (!numErrors.isEmpty() && !reportOnly ? 1 : 0);
             }
 
-            var futureResults = new HashMap<String, Future<List<String>>>();
+            var futureResults = new HashMap<String, Future<List<Difference>>>();
 
             if (options.mavenOptions.deployPath.toFile().exists()) {
                 Files.walkFileTree(options.mavenOptions.deployPath, new SimpleFileVisitor<>() {
@@ -152,20 +163,18 @@ public class VerifyBuiltArtifactsCommand implements Callable<Integer> {
             boolean failed = false;
             var verificationResults = new HashMap<String, List<String>>();
             for (var e : futureResults.entrySet()) {
-                List<String> results = e.getValue().get();
-                verificationResults.put(e.getKey(), results);
+                List<Difference> results = e.getValue().get();
                 if (results.isEmpty()) {
                     Log.infof("Passed: %s", e.getKey());
                 } else {
 
-                    for (Iterator<String> iterator = results.iterator(); iterator.hasNext();) {
-                        var error = iterator.next();
-                        var matcher = CLASS_VERSION_CHANGED_PATTERN.matcher(error);
-                        if (matcher.matches()) {
-                            var fileName = matcher.group("fileName");
-                            var className = matcher.group("className");
-                            var fromVersion = ClassVersion.fromVersion(matcher.group("fromVersion"));
-                            var toVersion = ClassVersion.fromVersion(matcher.group("toVersion"));
+                    for (Iterator<Difference> iterator = results.iterator(); iterator.hasNext();) {
+                        var difference = iterator.next();
+                        if (difference.isClassVersionChanged()) {
+                            var fileName = difference.fileName();
+                            var className = difference.className();
+                            var fromVersion = ClassVersion.fromVersion(difference.from());
+                            var toVersion = ClassVersion.fromVersion(difference.to());
                             var sourceVersion = ClassVersion.toJavaVersion(fromVersion);
                             if (sourceVersion.intVersion() < 5) {
                                 Log.errorf(
@@ -182,20 +191,19 @@ public class VerifyBuiltArtifactsCommand implements Callable<Integer> {
                             reportOnly = false;
                             break;
                         }
-                        matcher = CLASS_REMOVED_PATTERN.matcher(error);
-                        if (matcher.matches()) {
-                            var fileName = matcher.group("fileName");
-                            var className = matcher.group("className");
-                            Log.errorf("Class %s in file %s was removed", className, fileName);
+                        if (difference.isClassRemoved()) {
+                            Log.errorf("Class %s in file %s was removed", difference.name(), difference.fileName());
                             reportOnly = false;
                             break;
                         }
                     }
                     if (!results.isEmpty()) {
-                        Log.errorf("Failed: %s:\n%s", e.getKey(), String.join("\n", results));
+                        Log.errorf("Failed: %s:\n%s", e.getKey(),
+                                results.stream().map(Difference::toString).collect(Collectors.joining("\n")));
                         failed = true;
                     }
                 }
+                verificationResults.put(e.getKey(), results.stream().map(Difference::toString).toList());
             }
 
             if (resultsFile != null) {
@@ -253,13 +261,13 @@ public class VerifyBuiltArtifactsCommand implements Callable<Integer> {
         return newExcludes;
     }
 
-    private List<String> handleJar(Path upstreamFile, Path rebuiltFile, List<String> excludes) {
-        var left = new JarInfo(upstreamFile);
-        var right = new JarInfo(rebuiltFile);
+    private List<Difference> handleJar(Path upstreamFile, Path rebuiltFile, Predicate<String> excludes) {
+        var left = new JarInfo(upstreamFile, hashInstructions);
+        var right = new JarInfo(rebuiltFile, hashInstructions);
         return left.diffJar(right, excludes);
     }
 
-    private List<String> handleJar(Path rebuiltFile, Path relativeFile, String coords, List<String> excludes)
+    private List<Difference> handleJar(Path rebuiltFile, Path relativeFile, String coords, Predicate<String> excludes)
             throws IOException {
         try {
             var optionalUpstreamFile = resolveArtifact(normalize(relativeFile.toString(), true));
@@ -290,6 +298,10 @@ public class VerifyBuiltArtifactsCommand implements Callable<Integer> {
         if (options.mavenOptions.repositoryUrl.startsWith("file")) {
             return downloadFile(URI.create(url));
         }
-        return downloadFile(URI.create(url + "?upstream-only=true"));
+        var uri = URI.create(url + "?upstream-only=true");
+        if (upstreamArtifactCache != null) {
+            return upstreamArtifactCache.resolve(relativeFile, uri);
+        }
+        return downloadFile(uri);
     }
 }
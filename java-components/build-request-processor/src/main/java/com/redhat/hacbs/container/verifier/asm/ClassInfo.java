@@ -20,6 +20,13 @@ public record ClassInfo(ClassVersion version, AccessSet<ClassAccess> access, Str
         List<String> permittedSubclasses, Map<String, RecordComponentInfo> recordComponents, Map<String, FieldInfo> fields,
         Map<String, MethodInfo> methods) implements AsmDiffable<ClassInfo> {
     public ClassInfo(ClassNode node) {
+        this(node, Map.of());
+    }
+
+    /**
+     * @param instructionHashes Method body hashes keyed by method name and descriptor, see {@link ClassInfoVisitor}
+     */
+    public ClassInfo(ClassNode node, Map<String, String> instructionHashes) {
         this(new ClassVersion(node.version), new AccessSet<>(node.access, ClassAccess.class), node.name, node.signature,
                 node.superName,
                 List.copyOf(node.interfaces), node.sourceFile, node.sourceDebug,
@@ -59,7 +66,9 @@ public record ClassInfo(ClassVersion version, AccessSet<ClassAccess> access, Str
                 node.fields.stream().filter(field -> isPublic(field.access))
                         .collect(Collectors.toMap(n -> n.name, FieldInfo::new, (x, y) -> x, LinkedHashMap::new)),
                 node.methods.stream().filter(method -> isPublic(method.access) && !isSyntheticBridge(method.access))
-                        .collect(Collectors.toMap(n -> n.name + n.desc, MethodInfo::new, (x, y) -> x, LinkedHashMap::new)));
+                        .collect(Collectors.toMap(n -> n.name + n.desc,
+                                n -> new MethodInfo(n, instructionHashes.get(n.name + n.desc)), (x, y) -> x,
+                                LinkedHashMap::new)));
     }
 
     @Override
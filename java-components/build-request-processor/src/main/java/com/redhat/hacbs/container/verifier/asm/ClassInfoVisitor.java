@@ -0,0 +1,277 @@
+package com.redhat.hacbs.container.verifier.asm;
+
+import static com.redhat.hacbs.container.verifier.asm.AsmUtils.isPublic;
+import static com.redhat.hacbs.container.verifier.asm.AsmUtils.isSyntheticBridge;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.TypePath;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Builds a {@link ClassInfo} while the class is being read, without keeping the full class tree in memory.
+ * <p>
+ * Only what the verifier compares is recorded: non-public members, invisible and type annotations, attributes and inner
+ * classes are dropped as they are visited. Method bodies are not parsed at all unless instruction hashing is enabled, in
+ * which case each public method body is reduced to a SHA-256 of its instructions.
+ */
+public class ClassInfoVisitor extends ClassNode {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final boolean hashInstructions;
+    private final Map<String, String> instructionHashes = new HashMap<>();
+    private MessageDigest digest;
+
+    public ClassInfoVisitor(boolean hashInstructions) {
+        super(Opcodes.ASM9);
+        this.hashInstructions = hashInstructions;
+    }
+
+    /**
+     * Reads the given class.
+     *
+     * @return The class info, or null if the class is not public
+     */
+    public static ClassInfo read(ClassReader reader, boolean hashInstructions) {
+        if (!isPublic(reader.getAccess())) {
+            return null;
+        }
+        var visitor = new ClassInfoVisitor(hashInstructions);
+        reader.accept(visitor, hashInstructions ? ClassReader.SKIP_FRAMES : ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+        return visitor.toClassInfo();
+    }
+
+    public ClassInfo toClassInfo() {
+        return new ClassInfo(this, instructionHashes);
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+        return visible ? super.visitAnnotation(descriptor, visible) : null;
+    }
+
+    @Override
+    public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String descriptor, boolean visible) {
+        return null;
+    }
+
+    @Override
+    public void visitAttribute(Attribute attribute) {
+    }
+
+    @Override
+    public void visitInnerClass(String name, String outerName, String innerName, int access) {
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String descriptor, String signature,
+            Object value) {
+        if (!isPublic(access)) {
+            return null;
+        }
+        return super.visitField(access, name, descriptor, signature, value);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+        if (!isPublic(access) || isSyntheticBridge(access)) {
+            return null;
+        }
+        var node = (MethodNode) super.visitMethod(access, name, descriptor, signature, exceptions);
+        var key = name + descriptor;
+        return new MethodVisitor(api, node) {
+            @Override
+            public void visitCode() {
+                //everything after this point is the method body, which is never stored in the method node
+                mv = hashInstructions ? new InstructionHasher(key) : null;
+            }
+        };
+    }
+
+    private MessageDigest digest() {
+        if (digest == null) {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * Hashes the instructions of a method body. Labels are hashed by the order they are first referenced in, with their
+     * instruction offsets added at the end, and debug information is ignored, so the hash only changes if the executable
+     * code does.
+     */
+    private class InstructionHasher extends MethodVisitor {
+
+        private final String key;
+        private final MessageDigest md = digest();
+        private final Map<Label, Integer> labels = new IdentityHashMap<>();
+        private final Map<Label, Integer> offsets = new IdentityHashMap<>();
+        private int instructions;
+
+        InstructionHasher(String key) {
+            super(ClassInfoVisitor.this.api);
+            this.key = key;
+        }
+
+        private void update(int value) {
+            md.update((byte) (value >>> 24));
+            md.update((byte) (value >>> 16));
+            md.update((byte) (value >>> 8));
+            md.update((byte) value);
+        }
+
+        private void update(Object value) {
+            md.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+        }
+
+        private void update(Label label) {
+            update(labels.computeIfAbsent(label, l -> labels.size()));
+        }
+
+        private void instruction(int opcode) {
+            instructions++;
+            update(opcode);
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            instruction(opcode);
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            instruction(opcode);
+            update(operand);
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int varIndex) {
+            instruction(opcode);
+            update(varIndex);
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            instruction(opcode);
+            update(type);
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+            instruction(opcode);
+            update(owner);
+            update(name);
+            update(descriptor);
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+            instruction(opcode);
+            update(owner);
+            update(name);
+            update(descriptor);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String descriptor, Handle bootstrapMethodHandle,
+                Object... bootstrapMethodArguments) {
+            instruction(Opcodes.INVOKEDYNAMIC);
+            update(name);
+            update(descriptor);
+            update(bootstrapMethodHandle);
+            update(Arrays.toString(bootstrapMethodArguments));
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            instruction(opcode);
+            update(label);
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            offsets.putIfAbsent(label, instructions);
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            instruction(Opcodes.LDC);
+            update(value);
+        }
+
+        @Override
+        public void visitIincInsn(int varIndex, int increment) {
+            instruction(Opcodes.IINC);
+            update(varIndex);
+            update(increment);
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            instruction(Opcodes.TABLESWITCH);
+            update(min);
+            update(max);
+            update(dflt);
+            for (var label : labels) {
+                update(label);
+            }
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            instruction(Opcodes.LOOKUPSWITCH);
+            update(dflt);
+            for (int i = 0; i < keys.length; ++i) {
+                update(keys[i]);
+                update(labels[i]);
+            }
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String descriptor, int numDimensions) {
+            instruction(Opcodes.MULTIANEWARRAY);
+            update(descriptor);
+            update(numDimensions);
+        }
+
+        @Override
+        public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+            update(start);
+            update(end);
+            update(handler);
+            update(type);
+        }
+
+        @Override
+        public void visitEnd() {
+            //labels that are never referenced (e.g. line numbers) are not part of the hash
+            labels.keySet().stream().sorted(Comparator.comparing(labels::get))
+                    .forEach(label -> update(offsets.getOrDefault(label, -1)));
+            instructionHashes.put(key, HEX.formatHex(md.digest()));
+        }
+    }
+}
@@ -1,25 +1,24 @@
 package com.redhat.hacbs.container.verifier.asm;
 
-import static com.redhat.hacbs.container.verifier.asm.AsmUtils.isPublic;
-
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Predicate;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.StringUtils;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.tree.ClassNode;
 
 import com.redhat.hacbs.container.verifier.DiffUtils;
+import com.redhat.hacbs.container.verifier.Difference;
 
 import io.quarkus.logging.Log;
 
@@ -28,10 +27,17 @@ public record JarInfo(String name, Map<String, ClassInfo> classes) implements As
     // diffClass excluding name
 
     public JarInfo(Path file) {
-        this(Objects.toString(file.getFileName()), readClasses(file));
+        this(file, false);
+    }
+
+    /**
+     * @param hashInstructions If method bodies should be compared, by hashing their instructions
+     */
+    public JarInfo(Path file, boolean hashInstructions) {
+        this(Objects.toString(file.getFileName()), readClasses(file, hashInstructions));
     }
 
-    private static Map<String, ClassInfo> readClasses(Path file) {
+    private static Map<String, ClassInfo> readClasses(Path file, boolean hashInstructions) {
         var classes = new LinkedHashMap<String, ClassInfo>();
 
         try (var in = new JarInputStream(Files.newInputStream(file))) {
@@ -52,12 +58,9 @@ public record JarInfo(String name, Map<String, ClassInfo> classes) implements As
                         continue;
                     }
 
-                    var reader = new ClassReader(in);
-                    var node = new ClassNode();
-                    reader.accept(node, 0);
+                    var classInfo = ClassInfoVisitor.read(new ClassReader(in), hashInstructions);
 
-                    if (isPublic(node.access)) {
-                        var classInfo = new ClassInfo(node);
+                    if (classInfo != null) {
                         classes.put(name, classInfo);
                     }
                 } catch (Exception e) {
@@ -71,133 +74,173 @@ public record JarInfo(String name, Map<String, ClassInfo> classes) implements As
         return classes;
     }
 
-    private static void addChange(List<String> diffResults, String jarName, String className,
-            String fieldName, String oldValue, String newValue) {
-        var s = String.format("^:%s:%s:%s:%s>%s", jarName, className.replace('/', '.'), fieldName, oldValue, newValue);
-        diffResults.add(s);
+    private static void addChange(List<Difference> diffResults, String jarName, String className, String fieldName,
+            String oldValue, String newValue) {
+        diffResults.add(Difference.changed(jarName, className, Difference.CLASS, fieldName, oldValue, newValue));
     }
 
-    private static <T extends AsmDiffable<T>> void addChanges(List<String> diffResults, String jarName, String type,
-            String oldName, String newName, Map<String, T> left,
-            Map<String, T> right) {
-        var results = DiffUtils.diff(jarName + ":" + oldName, jarName + ":" + newName, type, left, right);
+    private static <T extends AsmDiffable<T>> void addChanges(List<Difference> diffResults, String jarName, String type,
+            String className, Map<String, T> left, Map<String, T> right) {
+        var results = DiffUtils.diff(jarName, jarName, className, type, left, right);
         diffResults.addAll(results.results());
 
         for (var r : results.diffResults().entrySet()) {
             for (var s : r.getValue().getDiffs()) {
-                addChange(diffResults, jarName, oldName, r.getKey(), Objects.toString(s.getLeft()),
-                        Objects.toString(s.getRight()));
+                diffResults.add(Difference.changed(jarName, className, type, r.getKey(), Objects.toString(s.getLeft()),
+                        Objects.toString(s.getRight())));
             }
         }
     }
 
-    public List<String> diffJar(JarInfo jar, List<String> excludes) {
-        var classResults = DiffUtils.diff(this.name(), jar.name(), "class", this.classes(), jar.classes());
-        var diffResults = new ArrayList<>(classResults.results());
+    /**
+     * Compiles the given exclude patterns into a single predicate, so they can be compiled once and shared between all
+     * the jars that are being verified.
+     */
+    public static Predicate<String> excludes(Collection<String> excludes) {
+        var predicates = excludes.stream().map(Pattern::compile).map(Pattern::asPredicate).toList();
+        return s -> {
+            for (var i : predicates) {
+                if (i.test(s)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    public List<Difference> diffJar(JarInfo jar, List<String> excludes) {
+        return diffJar(jar, excludes(excludes));
+    }
 
+    /**
+     * Compares this jar with the given jar.
+     *
+     * @param excluded Matches the string form of differences that should be ignored
+     * @return The differences, sorted by their string form
+     */
+    public List<Difference> diffJar(JarInfo jar, Predicate<String> excluded) {
+        var classResults = DiffUtils.diff(this.name(), jar.name(), null, Difference.CLASS, this.classes(), jar.classes(),
+                false);
+        var diffResults = new ArrayList<>(classResults.results());
         for (var name : classResults.shared()) {
             var left = this.classes().get(name);
 
             // null means file other than .class file
-            if (left == null) {
-                continue;
+            if (left != null) {
+                diffResults.addAll(diffClass(left, jar.classes().get(name)));
             }
+        }
 
-            var right = jar.classes().get(name);
-
-            if (!Objects.equals(left.version(), right.version())) {
-                addChange(diffResults, this.name(), left.name(), "version",
-                        left.version().majorVersion() + "." + left.version().minorVersion(),
-                        right.version().majorVersion() + "." + right.version().minorVersion());
+        //the string form is what is matched, reported and sorted on, so only build it once per difference
+        var errors = new ArrayList<Map.Entry<String, Difference>>();
+        for (var i : diffResults) {
+            var s = i.toString();
+            if (!excluded.test(s)) {
+                errors.add(Map.entry(s, i));
             }
+        }
+        errors.sort(Map.Entry.comparingByKey());
 
-            if (!Objects.equals(left.access(), right.access())) {
-                addChange(diffResults, this.name(), left.name(), "access", Objects.toString(left.access()),
-                        Objects.toString(right.access()));
-            }
+        if (Log.isInfoEnabled() && !errors.isEmpty()) {
+            Log.infof("Jar verification got %d errors:\n%s", errors.size(),
+                    errors.stream().map(Map.Entry::getKey).collect(Collectors.joining("\n")));
+        }
+        return errors.stream().map(Map.Entry::getValue).collect(Collectors.toCollection(ArrayList::new));
+    }
 
-            if (!Objects.equals(left.name(), right.name())) {
-                addChange(diffResults, this.name(), left.name(), "name", left.name(), right.name());
-            }
+    private List<Difference> diffClass(ClassInfo left, ClassInfo right) {
+        //most classes are unchanged, so check this before comparing them field by field
+        if (left.equals(right)) {
+            return List.of();
+        }
 
-            if (!Objects.equals(left.signature(), right.signature())) {
-                addChange(diffResults, this.name(), left.name(), "signature", left.signature(),
-                        right.signature());
-            }
+        var diffResults = new ArrayList<Difference>();
 
-            if (!Objects.equals(left.superName(), right.superName())) {
-                addChange(diffResults, this.name(), left.name(), "superName", left.superName(),
-                        right.superName());
-            }
+        if (!Objects.equals(left.version(), right.version())) {
+            addChange(diffResults, name, left.name(), "version",
+                    left.version().majorVersion() + "." + left.version().minorVersion(),
+                    right.version().majorVersion() + "." + right.version().minorVersion());
+        }
 
-            if (!Objects.equals(left.interfaces(), right.interfaces())) {
-                addChange(diffResults, this.name(), left.name(), "interfaces",
-                        Objects.toString(left.interfaces()), Objects.toString(right.interfaces()));
-            }
+        if (!Objects.equals(left.access(), right.access())) {
+            addChange(diffResults, name, left.name(), "access", Objects.toString(left.access()),
+                    Objects.toString(right.access()));
+        }
 
-            //we don't care about these from a verification point of view
-            //            if (!Objects.equals(left.sourceFile(), right.sourceFile())) {
-            //                addChange(diffResults, this.name(), left.name(), "sourceFile", left.sourceFile(),
-            //                        right.sourceFile());
-            //            }
-            //
-            //            if (!Objects.equals(left.sourceDebug(), right.sourceDebug())) {
-            //                addChange(diffResults, this.name(), left.name(), "sourceDebug", left.sourceDebug(),
-            //                        right.sourceDebug());
-            //            }
-
-            if (!Objects.equals(left.module(), right.module())) {
-                addChanges(diffResults, this.name, "module", left.name(), right.name(), left.module(), right.module());
-            }
+        if (!Objects.equals(left.name(), right.name())) {
+            addChange(diffResults, name, left.name(), "name", left.name(), right.name());
+        }
 
-            if (!Objects.equals(left.outerClass(), right.outerClass())) {
-                addChange(diffResults, this.name(), left.name(), "outerClass", left.outerClass(),
-                        right.outerClass());
-            }
+        if (!Objects.equals(left.signature(), right.signature())) {
+            addChange(diffResults, name, left.name(), "signature", left.signature(),
+                    right.signature());
+        }
 
-            if (!Objects.equals(left.outerMethod(), right.outerMethod())) {
-                addChange(diffResults, this.name(), left.name(), "outerMethod", left.outerMethod(),
-                        right.outerMethod());
-            }
+        if (!Objects.equals(left.superName(), right.superName())) {
+            addChange(diffResults, name, left.name(), "superName", left.superName(),
+                    right.superName());
+        }
 
-            if (!Objects.equals(left.outerMethodDesc(), right.outerMethodDesc())) {
-                addChange(diffResults, this.name(), left.name(), "outerMethodDesc", left.outerMethodDesc(),
-                        right.outerMethodDesc());
-            }
+        if (!Objects.equals(left.interfaces(), right.interfaces())) {
+            addChange(diffResults, name, left.name(), "interfaces",
+                    Objects.toString(left.interfaces()), Objects.toString(right.interfaces()));
+        }
 
-            if (!Objects.equals(left.visibleAnnotations(), right.visibleAnnotations())) {
-                addChanges(diffResults, this.name(), "annotation", left.name(), right.name(), left.visibleAnnotations(),
-                        right.visibleAnnotations());
-            }
+        //we don't care about these from a verification point of view
+        //            if (!Objects.equals(left.sourceFile(), right.sourceFile())) {
+        //                addChange(diffResults, name, left.name(), "sourceFile", left.sourceFile(),
+        //                        right.sourceFile());
+        //            }
+        //
+        //            if (!Objects.equals(left.sourceDebug(), right.sourceDebug())) {
+        //                addChange(diffResults, name, left.name(), "sourceDebug", left.sourceDebug(),
+        //                        right.sourceDebug());
+        //            }
+
+        if (!Objects.equals(left.module(), right.module())) {
+            addChanges(diffResults, name, "module", left.name(), left.module(), right.module());
+        }
 
-            if (!Objects.equals(left.permittedSubclasses(), right.permittedSubclasses())) {
-                addChange(diffResults, this.name(), left.name(),
-                        "permittedSubclasses", Objects.toString(left.permittedSubclasses()),
-                        Objects.toString(right.permittedSubclasses()));
-            }
+        if (!Objects.equals(left.outerClass(), right.outerClass())) {
+            addChange(diffResults, name, left.name(), "outerClass", left.outerClass(),
+                    right.outerClass());
+        }
 
-            if (!Objects.equals(left.recordComponents(), right.recordComponents())) {
-                addChanges(diffResults, this.name(), "recordComponent", left.name(), right.name(), left.recordComponents(),
-                        right.recordComponents());
-            }
+        if (!Objects.equals(left.outerMethod(), right.outerMethod())) {
+            addChange(diffResults, name, left.name(), "outerMethod", left.outerMethod(),
+                    right.outerMethod());
+        }
 
-            if (!Objects.equals(left.fields(), right.fields())) {
-                addChanges(diffResults, this.name(), "field", left.name(), right.name(), left.fields(), right.fields());
-            }
+        if (!Objects.equals(left.outerMethodDesc(), right.outerMethodDesc())) {
+            addChange(diffResults, name, left.name(), "outerMethodDesc", left.outerMethodDesc(),
+                    right.outerMethodDesc());
+        }
 
-            if (!Objects.equals(left.methods(), right.methods())) {
-                addChanges(diffResults, this.name(), "method", left.name(), right.name(), left.methods(), right.methods());
-            }
+        if (!Objects.equals(left.visibleAnnotations(), right.visibleAnnotations())) {
+            addChanges(diffResults, name, "annotation", left.name(), left.visibleAnnotations(),
+                    right.visibleAnnotations());
+        }
+
+        if (!Objects.equals(left.permittedSubclasses(), right.permittedSubclasses())) {
+            addChange(diffResults, name, left.name(),
+                    "permittedSubclasses", Objects.toString(left.permittedSubclasses()),
+                    Objects.toString(right.permittedSubclasses()));
         }
 
-        var errors = new ArrayList<>(diffResults);
-        excludes.stream().map(Pattern::compile).map(Pattern::asPredicate).forEach(errors::removeIf);
+        if (!Objects.equals(left.recordComponents(), right.recordComponents())) {
+            addChanges(diffResults, name, "recordComponent", left.name(), left.recordComponents(),
+                    right.recordComponents());
+        }
 
-        if (Log.isInfoEnabled() && !errors.isEmpty()) {
-            Log.infof("Jar verification got %d errors:\n%s", errors.size(), StringUtils.join(errors, '\n'));
+        if (!Objects.equals(left.fields(), right.fields())) {
+            addChanges(diffResults, name, "field", left.name(), left.fields(), right.fields());
         }
-        Collections.sort(errors);
-        return errors;
+
+        if (!Objects.equals(left.methods(), right.methods())) {
+            addChanges(diffResults, name, "method", left.name(), left.methods(), right.methods());
+        }
+
+        return diffResults;
     }
 
     @Override
@@ -25,13 +25,21 @@ public record MethodInfo(AccessSet<MethodAccess> access, String name, String des
                                                                                                           * List<Map<String,
                                                                                                           * AnnotationInfo>>
                                                                                                           * invisibleParameterAnnotations,
-                                                                                                          */
+                                                                                                          */,
+        String instructionHash
 /*
  * Map<Integer, InsnInfo> instructions, List<TryCatchBlockInfo> tryCatchBlocks, int maxStack, int maxLocals,
  * Map<String, LocalVariableInfo> localVariables, Map<String, LocalVariableAnnotationInfo> visibleLocalVariableAnnotations,
  * Map<String, LocalVariableAnnotationInfo> invisibleLocalVariableAnnotations
  */) implements AsmDiffable<MethodInfo> {
     public MethodInfo(MethodNode node) {
+        this(node, null);
+    }
+
+    /**
+     * @param instructionHash A hash of the method body, or null if instructions are not being compared
+     */
+    public MethodInfo(MethodNode node, String instructionHash) {
         this(new AccessSet<>((node.access & ACC_STATIC) != 0 ? (node.access & ~ACC_FINAL) : node.access, MethodAccess.class),
                 node.name, node.desc, node.signature,
                 List.copyOf(node.exceptions),
@@ -74,7 +82,8 @@ public record MethodInfo(AccessSet<MethodAccess> access, String name, String des
                                                              * .collect(Collectors.toMap(n -> n.desc, AnnotationInfo::new, (x,
                                                              * y) -> x, LinkedHashMap::new)))
                                                              * .collect(Collectors.toList()) : null,
-                                                             */
+                                                             */,
+                instructionHash
         /*
          * StreamSupport.stream(() -> node.instructions.spliterator(), ORDERED, false).collect(
          * Collectors.toMap(AbstractInsnNode::getOpcode, InsnInfo::new, (x, y) -> x, LinkedHashMap::new)),
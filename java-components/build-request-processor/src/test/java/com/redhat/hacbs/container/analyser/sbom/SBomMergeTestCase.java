@@ -1,9 +1,15 @@
 package com.redhat.hacbs.container.analyser.sbom;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Set;
 
+import org.cyclonedx.CycloneDxSchema;
+import org.cyclonedx.generators.json.BomJsonGenerator;
 import org.cyclonedx.model.Component;
+import org.cyclonedx.model.Dependency;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -51,4 +57,29 @@ public class SBomMergeTestCase {
         Assertions.assertEquals("central", test.getPublisher());
         Assertions.assertEquals("pkg:maven/com.test/test@1.0?classifier=foo", test.getPurl());
     }
+
+    @Test
+    public void testWriteAndRemerge() throws Exception {
+        var trackingData = Set.of(new TrackingData("commons-digester:commons-digester:2.1", "rebuilt", Map.of()),
+                new TrackingData("com.test:test:1.0", "central", Map.of("classifier", "foo", "build-id", "1")));
+        var sbom = SBomGenerator.generateSBom(trackingData,
+                getClass().getClassLoader().getResourceAsStream("syft-sbom.json"));
+        var dependency = new Dependency("pkg:maven/com.test/test@1.0?classifier=foo");
+        dependency.addDependency(new Dependency("pkg:maven/commons-digester/commons-digester@2.1"));
+        sbom.addDependency(dependency);
+        var out = new ByteArrayOutputStream();
+        SBomGenerator.writeSBom(sbom, out);
+        Assertions.assertEquals(new BomJsonGenerator(sbom, CycloneDxSchema.VERSION_LATEST).toJsonString(),
+                out.toString(StandardCharsets.UTF_8));
+
+        //merging the same data again should not duplicate anything
+        var merged = SBomGenerator.generateSBom(trackingData, new ByteArrayInputStream(out.toByteArray()));
+        Assertions.assertEquals(5, merged.getComponents().size());
+        for (var c : merged.getComponents()) {
+            if (c.getName().equals("test")) {
+                Assertions.assertEquals("pkg:maven/com.test/test@1.0?classifier=foo", c.getPurl());
+                Assertions.assertEquals(3, c.getProperties().size());
+            }
+        }
+    }
 }
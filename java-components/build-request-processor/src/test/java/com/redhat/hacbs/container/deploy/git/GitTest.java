@@ -1,6 +1,7 @@
 package com.redhat.hacbs.container.deploy.git;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
@@ -11,6 +12,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.logging.LogRecord;
 
 import org.apache.commons.io.FileUtils;
@@ -265,6 +267,75 @@ public class GitTest {
         }
     }
 
+    @Test
+    public void testFindTag() throws IOException, GitAPIException {
+        Path repo = Files.createTempDirectory("find-tag");
+        try (var jGit = org.eclipse.jgit.api.Git.init().setDirectory(repo.toFile()).call()) {
+            var first = jGit.commit().setMessage("first").setSign(false).setAllowEmpty(true).call();
+            var second = jGit.commit().setMessage("second").setSign(false).setAllowEmpty(true).call();
+            jGit.tag().setName("b-packed").setObjectId(first).setAnnotated(true).call();
+            jGit.tag().setName("d-packed-light").setObjectId(second).setAnnotated(false).call();
+            jGit.gc().call();
+            // Loose tags are created after the gc, so the ref database has not peeled them
+            jGit.tag().setName("a-loose").setObjectId(first).setAnnotated(true).call();
+            jGit.tag().setName(first.getName() + "-jbs").setObjectId(first).setAnnotated(false).call();
+            var third = jGit.commit().setMessage("third").setSign(false).setAllowEmpty(true).call();
+            var jRepo = jGit.getRepository();
+
+            // The lowest name across packed and loose tags is used, and our own tags are ignored
+            assertEquals("a-loose", Git.findTag(jRepo, first, first.getName()));
+            assertEquals("d-packed-light", Git.findTag(jRepo, second, second.getName()));
+            jGit.tag().setName("c-light").setObjectId(second).setAnnotated(false).call();
+            assertEquals("c-light", Git.findTag(jRepo, second, second.getName()));
+            assertNull(Git.findTag(jRepo, third, third.getName()));
+        }
+    }
+
+    @Test
+    public void testStageChanges() throws IOException, GitAPIException {
+        Path repo = Files.createTempDirectory("stage-changes");
+        try (var jGit = org.eclipse.jgit.api.Git.init().setDirectory(repo.toFile()).call()) {
+            Files.writeString(repo.resolve(".gitignore"), "ignored.txt\n");
+            Files.writeString(repo.resolve("modified.txt"), "original");
+            Files.writeString(repo.resolve("unchanged.txt"), "original");
+            jGit.add().addFilepattern(".").call();
+            jGit.commit().setMessage("initial").setSign(false).call();
+
+            Files.writeString(repo.resolve("modified.txt"), "modified");
+            Files.createDirectories(repo.resolve("dir"));
+            Files.writeString(repo.resolve("dir/untracked.txt"), "new");
+            Files.writeString(repo.resolve("ignored.txt"), "ignored");
+            Git.stageChanges(jGit);
+
+            var status = jGit.status().call();
+            assertEquals(Set.of("dir/untracked.txt"), status.getAdded());
+            assertEquals(Set.of("modified.txt"), status.getChanged());
+            assertTrue(status.getUntracked().isEmpty());
+            assertTrue(status.getModified().isEmpty());
+        }
+    }
+
+    @Test
+    public void testFetchPreviousPush() throws IOException, GitAPIException {
+        Path remote = Files.createTempDirectory("previous-push-remote");
+        Path local = Files.createTempDirectory("previous-push-local");
+        try (var remoteGit = org.eclipse.jgit.api.Git.init().setDirectory(remote.toFile()).call();
+                var localGit = org.eclipse.jgit.api.Git.init().setDirectory(local.toFile()).call()) {
+            remoteGit.commit().setMessage("initial").setSign(false).setAllowEmpty(true).call();
+            var tag = remoteGit.tag().setName("1.0-75ecd81c7a2b384151c990975eb1dd10").setAnnotated(true).call();
+            var config = localGit.getRepository().getConfig();
+            config.setString("remote", "origin", "url", remote.toUri().toString());
+            config.save();
+
+            test.fetchPreviousPush(localGit, "1.0-75ecd81c7a2b384151c990975eb1dd10");
+            assertEquals(tag.getObjectId(), localGit.getRepository().exactRef(Git.PREVIOUS_PUSH_REF).getObjectId());
+
+            // A tag that has not been pushed before is not an error
+            test.fetchPreviousPush(localGit, "1.1-75ecd81c7a2b384151c990975eb1dd10");
+            assertEquals(tag.getObjectId(), localGit.getRepository().exactRef(Git.PREVIOUS_PUSH_REF).getObjectId());
+        }
+    }
+
     @Test
     public void testIdentity() throws IOException {
         new GitHub(null, "cekit", null, true);
@@ -0,0 +1,58 @@
+package com.redhat.hacbs.container.deploy.mavenrepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveThrottleTest {
+
+    @Test
+    public void testThrottleHalvesRate() {
+        AdaptiveThrottle throttle = new AdaptiveThrottle(8, 1, 10, 1);
+        throttle.onThrottle();
+        assertEquals(4, throttle.getRate());
+        throttle.onThrottle();
+        throttle.onThrottle();
+        throttle.onThrottle();
+        assertEquals(1, throttle.getRate());
+    }
+
+    @Test
+    public void testSuccessRaisesRate() {
+        AdaptiveThrottle throttle = new AdaptiveThrottle(1, 1, 3, 1);
+        throttle.onSuccess();
+        assertEquals(2, throttle.getRate());
+        for (int i = 0; i < 10; ++i) {
+            throttle.onSuccess();
+        }
+        assertEquals(3, throttle.getRate());
+    }
+
+    @Test
+    public void testAcquireWaitsForToken() throws InterruptedException {
+        FakeClock clock = new FakeClock();
+        AdaptiveThrottle throttle = new AdaptiveThrottle(10, 1, 10, 2, clock);
+        throttle.acquire();
+        throttle.acquire();
+        assertEquals(0, clock.slept, "Burst capacity should not block");
+        throttle.onThrottle();
+        throttle.acquire();
+        assertEquals(200_000_000L, clock.slept, "Throttled bucket should wait for a token at 5/s");
+    }
+
+    static class FakeClock implements AdaptiveThrottle.Clock {
+        long now;
+        long slept;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public void sleep(long nanos) {
+            slept += nanos;
+            now += nanos;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.redhat.hacbs.container.deploy.mavenrepository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.http.client.HttpResponseException;
+import org.eclipse.aether.deployment.DeploymentException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.amazonaws.services.codeartifact.model.ThrottlingException;
+
+import io.quarkus.bootstrap.resolver.maven.BootstrapMavenContext;
+
+public class MavenRepositoryDeployerTest {
+
+    private static final String GROUP = "com.company.foo";
+    private static final String VERSION = "1.0";
+    private static final int ARTIFACT_COUNT = 20;
+
+    @TempDir
+    Path temp;
+
+    @Test
+    public void testConcurrentDeploy() throws Exception {
+        Path artifacts = temp.resolve("artifacts");
+        Path deployment = temp.resolve("deployment");
+        for (int i = 0; i < ARTIFACT_COUNT; ++i) {
+            String artifact = "artifact-" + i;
+            Path dir = artifacts.resolve(GROUP.replace('.', '/')).resolve(artifact).resolve(VERSION);
+            Files.createDirectories(dir);
+            Files.writeString(dir.resolve(artifact + "-" + VERSION + ".pom"), "<project>" + artifact + "</project>");
+            Files.writeString(dir.resolve(artifact + "-" + VERSION + ".jar"), "jar " + artifact);
+        }
+        BootstrapMavenContext mvnCtx = new BootstrapMavenContext(BootstrapMavenContext.config()
+                .setWorkspaceDiscovery(false)
+                .setOffline(true));
+
+        new MavenRepositoryDeployer(mvnCtx, "", "", deployment.toUri().toString(), artifacts, null, 4).deploy();
+
+        for (int i = 0; i < ARTIFACT_COUNT; ++i) {
+            String artifact = "artifact-" + i;
+            Path dir = deployment.resolve(GROUP.replace('.', '/')).resolve(artifact).resolve(VERSION);
+            assertEquals("<project>" + artifact + "</project>",
+                    Files.readString(dir.resolve(artifact + "-" + VERSION + ".pom")));
+            assertEquals("jar " + artifact, Files.readString(dir.resolve(artifact + "-" + VERSION + ".jar")));
+            assertTrue(Files.exists(dir.resolve(artifact + "-" + VERSION + ".jar.sha1")));
+            //every deployment updates the metadata of its own artifact, so none of them can be lost to a race
+            assertTrue(Files.readString(dir.getParent().resolve("maven-metadata.xml")).contains(VERSION));
+        }
+    }
+
+    @Test
+    public void testRetryClassification() {
+        var throttled = new DeploymentException("failed", new HttpResponseException(429, "Too Many Requests"));
+        assertTrue(MavenRepositoryDeployer.isThrottle(throttled));
+        assertTrue(MavenRepositoryDeployer.isThrottle(new ThrottlingException("slow down")));
+        //a message that happens to contain 429 is not a throttle
+        assertFalse(MavenRepositoryDeployer.isThrottle(new DeploymentException("artifact 1.4290 failed")));
+
+        assertTrue(MavenRepositoryDeployer.isRetryable(new DeploymentException("failed",
+                new HttpResponseException(503, "Service Unavailable"))));
+        assertTrue(MavenRepositoryDeployer.isRetryable(new DeploymentException("failed", new IOException("reset"))));
+        for (int status : new int[] { 401, 403, 409 }) {
+            assertFalse(MavenRepositoryDeployer.isRetryable(
+                    new DeploymentException("failed", new HttpResponseException(status, "error"))));
+        }
+        assertFalse(MavenRepositoryDeployer.isRetryable(new DeploymentException("failed")));
+    }
+
+    @Test
+    public void testStatusCode() {
+        assertEquals(503, MavenRepositoryDeployer.statusCode(new DeploymentException("failed",
+                new RuntimeException(new HttpResponseException(503, "Service Unavailable")))));
+        assertEquals(-1, MavenRepositoryDeployer.statusCode(new DeploymentException("failed", new IOException("reset"))));
+    }
+}
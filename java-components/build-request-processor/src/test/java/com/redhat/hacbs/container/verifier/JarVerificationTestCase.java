@@ -2,18 +2,27 @@ package com.redhat.hacbs.container.verifier;
 
 import static com.redhat.hacbs.container.verifier.JarVerifierUtils.runTests;
 
+import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.Callable;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
+import com.redhat.hacbs.container.verifier.asm.ClassInfoVisitor;
+import com.redhat.hacbs.container.verifier.asm.JarInfo;
+
 public class JarVerificationTestCase {
 
     @Test
@@ -186,4 +195,79 @@ public class JarVerificationTestCase {
         }, List.of(), "-:.*:com.redhat.hacbs.container.verifier.SimpleClass:annotation:@java.lang.Deprecated");
     }
 
+    @Test
+    void testInstructionHashes() throws IOException {
+        byte[] classData;
+        try (var in = SimpleClass.class.getResourceAsStream(SimpleClass.class.getSimpleName() + ".class")) {
+            Assertions.assertNotNull(in);
+            classData = in.readAllBytes();
+        }
+        var writer = new ClassWriter(0);
+        new ClassReader(classData).accept(new ClassVisitor(Opcodes.ASM9, writer) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                    String[] exceptions) {
+                var mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+                if (!Objects.equals(name, "publicMethod")) {
+                    return mv;
+                }
+                return new MethodVisitor(Opcodes.ASM9, mv) {
+                    @Override
+                    public void visitLdcInsn(Object value) {
+                        super.visitLdcInsn("changed");
+                    }
+                };
+            }
+        }, 0);
+        var modClassData = writer.toByteArray();
+
+        //only the signature is compared by default
+        Assertions.assertEquals(ClassInfoVisitor.read(new ClassReader(classData), false),
+                ClassInfoVisitor.read(new ClassReader(modClassData), false));
+        var left = ClassInfoVisitor.read(new ClassReader(classData), true);
+        var right = ClassInfoVisitor.read(new ClassReader(modClassData), true);
+        Assertions.assertEquals(left.methods().get("<init>()V"), right.methods().get("<init>()V"));
+        Assertions.assertNotNull(left.methods().get("publicMethod()Ljava/lang/String;").instructionHash());
+        Assertions.assertNotEquals(left.methods().get("publicMethod()Ljava/lang/String;"),
+                right.methods().get("publicMethod()Ljava/lang/String;"));
+        Assertions.assertNull(left.methods().get("privateMethod()Ljava/lang/String;"));
+    }
+
+    @Test
+    void testExcludes() {
+        var excluded = JarInfo.excludes(List.of("^-:.*:annotation:", "field:intField$"));
+        Assertions.assertTrue(excluded.test("-:tmp1.jar:com.acme.Foo:annotation:@java.lang.Deprecated"));
+        Assertions.assertTrue(excluded.test("+:tmp1.jar:com.acme.Foo:field:intField"));
+        Assertions.assertFalse(excluded.test("+:tmp1.jar:com.acme.Foo:annotation:@java.lang.Deprecated"));
+        Assertions.assertFalse(JarInfo.excludes(List.of()).test("-:tmp1.jar:com.acme.Foo:field:intField"));
+    }
+
+    @Test
+    void testDiffShared() throws IOException {
+        byte[] classData;
+        try (var in = SimpleClass.class.getResourceAsStream(SimpleClass.class.getSimpleName() + ".class")) {
+            Assertions.assertNotNull(in);
+            classData = in.readAllBytes();
+        }
+        var writer = new ClassWriter(0);
+        new ClassReader(classData).accept(new ClassVisitor(Opcodes.ASM9, writer) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                super.visit(version - 1, access, name, signature, superName, interfaces);
+            }
+        }, 0);
+        var original = ClassInfoVisitor.read(new ClassReader(classData), false);
+        var modified = ClassInfoVisitor.read(new ClassReader(writer.toByteArray()), false);
+        var left = Map.of("unchanged", original, "changed", original);
+        var right = Map.of("unchanged", original, "changed", modified);
+
+        var results = DiffUtils.diff("tmp1.jar", "tmp2.jar", null, "class", left, right, false);
+        Assertions.assertEquals(Set.of("unchanged", "changed"), results.shared());
+        Assertions.assertTrue(results.diffResults().isEmpty());
+
+        //only the entries that differ are diffed
+        results = DiffUtils.diff("tmp1.jar", "tmp2.jar", null, "class", left, right, true);
+        Assertions.assertEquals(Set.of("changed"), results.diffResults().keySet());
+        Assertions.assertTrue(results.results().isEmpty());
+    }
 }
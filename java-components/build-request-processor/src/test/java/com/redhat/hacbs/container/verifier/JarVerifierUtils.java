@@ -73,7 +73,8 @@ public class JarVerifierUtils {
                 expected.add(sb.toString());
             }
             Assertions.assertEquals(expected,
-                    new HashSet<>(left.diffJar(right, Arrays.stream(exclusions).collect(Collectors.toList()))));
+                    left.diffJar(right, Arrays.stream(exclusions).collect(Collectors.toList())).stream()
+                            .map(Difference::toString).collect(Collectors.toSet()));
 
         } catch (IOException e) {
             throw new RuntimeException(e);
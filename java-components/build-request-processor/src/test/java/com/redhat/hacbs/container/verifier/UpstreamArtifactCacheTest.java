@@ -0,0 +1,131 @@
+package com.redhat.hacbs.container.verifier;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class UpstreamArtifactCacheTest {
+
+    static final String PATH = "com/acme/acme/1.0/acme-1.0.jar";
+    static final byte[] CONTENTS = "jar contents".getBytes(StandardCharsets.UTF_8);
+    static final String SHA = "1ac30d8e92c0b9ae627b823794f49f2e362b0056";
+
+    HttpServer server;
+    final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    final AtomicInteger artifactRequests = new AtomicInteger();
+
+    @BeforeEach
+    public void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            var path = exchange.getRequestURI().getPath().substring(1);
+            if (path.equals(PATH)) {
+                artifactRequests.incrementAndGet();
+            }
+            var data = files.get(path);
+            if (data == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                exchange.sendResponseHeaders(200, data.length);
+                exchange.getResponseBody().write(data);
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void stop() {
+        server.stop(0);
+    }
+
+    URI uri() {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + "/" + PATH + "?upstream-only=true");
+    }
+
+    @Test
+    public void testArtifactCachedAcrossInstances(@TempDir Path dir) throws Exception {
+        files.put(PATH, CONTENTS);
+        files.put(PATH + ".sha1", (SHA + "  acme-1.0.jar").getBytes(StandardCharsets.UTF_8));
+
+        var cached = new UpstreamArtifactCache(dir).resolve(PATH, uri()).orElseThrow();
+        Assertions.assertArrayEquals(CONTENTS, Files.readAllBytes(cached));
+        Assertions.assertEquals("acme-1.0.jar", cached.getFileName().toString());
+        Assertions.assertEquals(1, artifactRequests.get());
+
+        //a new cache over the same directory, as used by a retried run, does not download it again
+        Assertions.assertEquals(cached, new UpstreamArtifactCache(dir).resolve(PATH, uri()).orElseThrow());
+        Assertions.assertEquals(1, artifactRequests.get());
+    }
+
+    @Test
+    public void testChecksumMismatchNotCached(@TempDir Path dir) throws Exception {
+        files.put(PATH, CONTENTS);
+        files.put(PATH + ".sha1", "0000000000000000000000000000000000000000".getBytes(StandardCharsets.UTF_8));
+
+        var cache = new UpstreamArtifactCache(dir);
+        //a mismatch fails the lookup, rather than looking like a missing artifact
+        Assertions.assertThrows(IOException.class, () -> cache.resolve(PATH, uri()));
+        Assertions.assertFalse(Files.exists(dir.resolve("artifacts")));
+
+        //once the upstream checksum is correct the artifact is downloaded again and cached
+        files.put(PATH + ".sha1", SHA.getBytes(StandardCharsets.UTF_8));
+        Assertions.assertArrayEquals(CONTENTS, Files.readAllBytes(cache.resolve(PATH, uri()).orElseThrow()));
+        Assertions.assertEquals(2, artifactRequests.get());
+    }
+
+    @Test
+    public void testTamperedCacheEntry(@TempDir Path dir) throws Exception {
+        files.put(PATH, CONTENTS);
+        files.put(PATH + ".sha1", SHA.getBytes(StandardCharsets.UTF_8));
+
+        var cached = new UpstreamArtifactCache(dir).resolve(PATH, uri()).orElseThrow();
+        //the cache directory may be writable by the build, so a modified entry is replaced rather than trusted
+        Files.writeString(cached, "planted contents");
+        var resolved = new UpstreamArtifactCache(dir).resolve(PATH, uri()).orElseThrow();
+        Assertions.assertArrayEquals(CONTENTS, Files.readAllBytes(resolved));
+        Assertions.assertEquals(2, artifactRequests.get());
+    }
+
+    @Test
+    public void testNoUpstreamChecksum(@TempDir Path dir) throws Exception {
+        files.put(PATH, CONTENTS);
+
+        var cache = new UpstreamArtifactCache(dir);
+        Assertions.assertArrayEquals(CONTENTS, Files.readAllBytes(cache.resolve(PATH, uri()).orElseThrow()));
+        //without an upstream checksum a cached copy cannot be verified, so it is downloaded again
+        Assertions.assertArrayEquals(CONTENTS, Files.readAllBytes(cache.resolve(PATH, uri()).orElseThrow()));
+        Assertions.assertEquals(2, artifactRequests.get());
+    }
+
+    @Test
+    public void testMissingArtifact(@TempDir Path dir) throws Exception {
+        Assertions.assertTrue(new UpstreamArtifactCache(dir).resolve(PATH, uri()).isEmpty());
+        Assertions.assertTrue(MavenUtils.downloadFile(uri()).isEmpty());
+        try (var tmp = Files.list(dir.resolve("tmp"))) {
+            Assertions.assertEquals(0, tmp.count());
+        }
+    }
+
+    @Test
+    public void testChecksumUri() {
+        Assertions.assertEquals(URI.create("http://localhost/a.jar.sha1?upstream-only=true"),
+                MavenUtils.checksumUri(URI.create("http://localhost/a.jar?upstream-only=true")));
+        Assertions.assertEquals(URI.create("http://localhost/a.jar.sha1"),
+                MavenUtils.checksumUri(URI.create("http://localhost/a.jar")));
+    }
+}
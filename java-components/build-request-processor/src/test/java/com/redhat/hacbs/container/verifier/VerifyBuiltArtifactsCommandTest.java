@@ -2,8 +2,6 @@ package com.redhat.hacbs.container.verifier;
 
 import static com.redhat.hacbs.container.verifier.MavenUtils.coordsToGav;
 import static com.redhat.hacbs.container.verifier.MavenUtils.coordsToPath;
-import static com.redhat.hacbs.container.verifier.VerifyBuiltArtifactsCommand.CLASS_REMOVED_PATTERN;
-import static com.redhat.hacbs.container.verifier.VerifyBuiltArtifactsCommand.CLASS_VERSION_CHANGED_PATTERN;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.IOException;
@@ -87,28 +85,26 @@ public class VerifyBuiltArtifactsCommandTest {
 
     @Test
     void testClassVersionChanged() {
-        var input = "^:auto-value-1.7.jar:autovalue.shaded.com.google$.j2objc.annotations.$RetainedWith:version:49.0>52.0";
-        var matcher = CLASS_VERSION_CHANGED_PATTERN.matcher(input);
-        assertThat(matcher).matches();
-        var fileName = matcher.group("fileName");
-        assertThat(fileName).isNotNull().isEqualTo("auto-value-1.7.jar");
-        var className = matcher.group("className");
-        assertThat(className).isNotNull().isEqualTo("autovalue.shaded.com.google$.j2objc.annotations.$RetainedWith");
-        var fromVersion = matcher.group("fromVersion");
-        assertThat(fromVersion).isNotNull().isEqualTo("49.0");
-        var toVersion = matcher.group("toVersion");
-        assertThat(toVersion).isNotNull().isEqualTo("52.0");
+        var difference = Difference.changed("auto-value-1.7.jar",
+                "autovalue/shaded/com/google$/j2objc/annotations/$RetainedWith", Difference.CLASS, Difference.VERSION, "49.0",
+                "52.0");
+        assertThat(difference.isClassVersionChanged()).isTrue();
+        assertThat(difference.isClassRemoved()).isFalse();
+        assertThat(difference.className()).isEqualTo("autovalue.shaded.com.google$.j2objc.annotations.$RetainedWith");
+        assertThat(difference).hasToString(
+                "^:auto-value-1.7.jar:autovalue.shaded.com.google$.j2objc.annotations.$RetainedWith:version:49.0>52.0");
     }
 
     @Test
     void testClassRemoved() {
-        var input = "-:smallrye-common-classloader-1.6.0.jar:class:io/smallrye/common/classloader/ClassDefiner";
-        var matcher = CLASS_REMOVED_PATTERN.matcher(input);
-        assertThat(matcher).matches();
-        var fileName = matcher.group("fileName");
-        assertThat(fileName).isNotNull().isEqualTo("smallrye-common-classloader-1.6.0.jar");
-        var className = matcher.group("className");
-        assertThat(className).isNotNull().isEqualTo("io/smallrye/common/classloader/ClassDefiner");
+        var difference = Difference.removed("smallrye-common-classloader-1.6.0.jar", null, Difference.CLASS,
+                "io/smallrye/common/classloader/ClassDefiner");
+        assertThat(difference.isClassRemoved()).isTrue();
+        assertThat(difference.isClassVersionChanged()).isFalse();
+        assertThat(difference).hasToString(
+                "-:smallrye-common-classloader-1.6.0.jar:class:io/smallrye/common/classloader/ClassDefiner");
+        assertThat(Difference.removed("smallrye-common-classloader-1.6.0.jar",
+                "io/smallrye/common/classloader/ClassDefiner", "method", "defineClass").isClassRemoved()).isFalse();
     }
 
     @Test
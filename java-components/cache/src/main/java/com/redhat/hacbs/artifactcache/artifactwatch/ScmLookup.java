@@ -3,12 +3,18 @@ package com.redhat.hacbs.artifactcache.artifactwatch;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 
@@ -33,6 +39,9 @@ import io.quarkus.runtime.Startup;
 @Startup
 public class ScmLookup {
 
+    private static final long STATUS_WRITE_INTERVAL = 200;
+    private static final int MAX_STATUS_RETRIES = 2;
+
     @Inject
     KubernetesClient client;
 
@@ -43,8 +52,28 @@ public class ScmLookup {
 
     private final Set<String> gavs = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
+    @ConfigProperty(name = "scm.lookup.threads", defaultValue = "8")
+    int threads;
+
     final RecipeManager recipeManager;
 
+    /**
+     * The ArtifactBuilds waiting for a lookup, keyed by name. Repeated events for an object that is already queued
+     * just replace the object, so each object is only looked up once. This also bounds the executor's queue to one
+     * task per ArtifactBuild, which the informer already holds in memory, so the queue does not need a limit of its own
+     * and the informer thread never has to wait for, or run, a lookup.
+     */
+    private final Map<String, ArtifactBuild> pendingLookups = new ConcurrentHashMap<>();
+    /**
+     * The completed lookups waiting to be written, keyed by name.
+     */
+    private final Map<String, PendingStatus> pendingStatus = new ConcurrentHashMap<>();
+    private final Object updateLock = new Object();
+    private long lastUpdate = System.nanoTime();
+
+    ExecutorService lookupExecutor;
+    ScheduledExecutorService statusWriter;
+
     public ScmLookup(RecipeManager recipeManager) {
         this.recipeManager = recipeManager;
     }
@@ -56,6 +85,10 @@ public class ScmLookup {
             //don't start in tests, as kube might not be present
             return;
         }
+        lookupExecutor = Executors.newFixedThreadPool(threads);
+        statusWriter = Executors.newSingleThreadScheduledExecutor();
+        statusWriter.scheduleWithFixedDelay(this::writeStatus, STATUS_WRITE_INTERVAL, STATUS_WRITE_INTERVAL,
+                TimeUnit.MILLISECONDS);
         client.resources(ArtifactBuild.class).inform().addEventHandler(new ResourceEventHandler<ArtifactBuild>() {
 
             @Override
@@ -64,92 +97,14 @@ public class ScmLookup {
                         newObj.getMetadata().getAnnotations().containsKey(ModelConstants.REBUILD)) {
                     return;
                 }
-                if (newObj.getStatus() == null) {
-                    newObj.setStatus(new ArtifactBuildStatus());
+                if (!needsLookup(newObj)) {
+                    return;
                 }
-                for (var i = 0; i < 3; ++i) { //retry loop
-                    if (newObj.getStatus() == null || newObj.getStatus().getState() == null
-                            || Objects.equals(newObj.getStatus().getState(), "")
-                            || Objects.equals(newObj.getStatus().getState(), ModelConstants.ARTIFACT_BUILD_NEW)) {
-                        Log.infof("updating SCM info for %s", newObj.getMetadata().getName());
-                        try {
-                            if (newObj.getStatus() == null) {
-                                newObj.setStatus(new ArtifactBuildStatus());
-                            }
-                            try {
-                                if (newObj.getMetadata().getAnnotations() != null
-                                        && newObj.getMetadata().getAnnotations().containsKey(ModelConstants.REBUILT)
-                                        && !newObj.getMetadata().getAnnotations()
-                                                .containsKey(ModelConstants.DEPENDENCY_CREATED)) {
-                                    //if this is a forced rebuild we always update the SCM info
-                                    //there is a good chance there may be a new recipe
-                                    recipeManager.forceUpdate();
-                                }
-                                Scm scm = new Scm();
-
-                                if (newObj.getMetadata().getAnnotations() != null &&
-                                        newObj.getMetadata().getAnnotations().containsKey(ModelConstants.DEPENDENCY_CREATED) &&
-                                        ModelConstants.ARTIFACT_BUILD_NEW.equals(newObj.getStatus().getState())) {
-                                    // If originally created from a DependencyBuild using a custom SCM but we're doing a rebuild
-                                    // then don't use the recipe DB for GAV lookup.
-                                    scm = newObj.getStatus().getScm();
-                                    Log.infof("Tagging artifactBuild for rebuild with URI %s and hash %s ", scm.getScmURL(),
-                                            scm.getCommitHash());
-                                } else if (newObj.getMetadata().getAnnotations() != null &&
-                                        newObj.getMetadata().getAnnotations().containsKey(ModelConstants.DEPENDENCY_CREATED)) {
-                                    // If the DependencyBuild was created directly no need to look up the GAV source, instead gather
-                                    // from existing dependency.
-                                    var depName = newObj.getMetadata().getAnnotations().get(ModelConstants.DEPENDENCY_CREATED);
-                                    var resource = client.resources(DependencyBuild.class).withName(depName);
-                                    DependencyBuild dependencyBuild = resource.get();
-                                    var scmInfo = dependencyBuild.getSpec().getScm();
-                                    scm.setScmType("git");
-                                    scm.setScmURL(scmInfo.getScmURL());
-                                    scm.setCommitHash(scmInfo.getCommitHash());
-                                    scm.setPath(scmInfo.getPath());
-                                    scm.set_private(scmInfo.get_private());
-                                    scm.setTag(scmInfo.getTag());
-                                    Log.infof(
-                                            "Updating artifactBuild with Dependency %s (state: %s) with GAV %s with URI %s and hash %s ",
-                                            depName, dependencyBuild.getStatus().getState(), newObj.getSpec().getGav(),
-                                            scm.getScmURL(), scm.getCommitHash());
-                                } else {
-                                    var result = recipeManager.locator().resolveTagInfo(GAV.parse(newObj.getSpec().getGav()));
-                                    scm.setScmType("git");
-                                    scm.setScmURL(result.getRepoInfo().getUri());
-                                    scm.setCommitHash(result.getHash());
-                                    String path = result.getRepoInfo().getPath();
-                                    if (path != null && path.startsWith("/")) {
-                                        path = path.substring(1);
-                                    }
-                                    scm.setPath(path);
-                                    scm.set_private(result.getRepoInfo().isPrivateRepo());
-                                    scm.setTag(result.getTag());
-                                    Log.infof("Adding artifactBuild with GAV %s with URI %s and hash %s ",
-                                            newObj.getSpec().getGav(), result.getRepoInfo().getUri(), result.getHash());
-                                }
-                                newObj.getStatus().setState(ModelConstants.ARTIFACT_BUILD_DISCOVERING);
-                                newObj.getStatus().setScm(scm);
-                                newObj.getStatus().setMessage("");
-                            } catch (Exception e) {
-                                Log.errorf(e, "Failed to update rebuilt object");
-                                newObj.getStatus().setMessage(e.getMessage());
-                                newObj.getStatus().setState(ModelConstants.ARTIFACT_BUILD_MISSING);
-                                // Not setting status label to missing here but will be handled in artifactbuild.go Reconcile
-                                // operator loop that calls updateLabel.
-                            }
-                            client.resource(newObj).patchStatus();
-                            return;
-                        } catch (KubernetesClientException e) {
-                            if (e.getCode() == 409) {
-                                //conflict, we will see a new version soon
-                                return;
-                            }
-                            Log.errorf(e, "Failed to update ArtifactBuild with discovery results");
-                        } catch (Exception e) {
-                            Log.errorf(e, "Failed to update ArtifactBuild with discovery results");
-                        }
-                    }
+                //if a lookup is already queued for this object it will use the latest version
+                String name = newObj.getMetadata().getName();
+                if (pendingLookups.put(name, newObj) == null) {
+                    long requested = System.nanoTime();
+                    lookupExecutor.execute(() -> lookup(name, requested));
                 }
             }
 
@@ -160,11 +115,147 @@ public class ScmLookup {
 
             @Override
             public void onDelete(ArtifactBuild obj, boolean deletedFinalStateUnknown) {
-
+                pendingLookups.remove(obj.getMetadata().getName());
             }
         });
     }
 
+    @PreDestroy
+    void shutdown() {
+        if (lookupExecutor != null) {
+            lookupExecutor.shutdownNow();
+        }
+        if (statusWriter != null) {
+            statusWriter.shutdownNow();
+        }
+    }
+
+    private static boolean needsLookup(ArtifactBuild obj) {
+        return obj.getStatus() == null || obj.getStatus().getState() == null
+                || Objects.equals(obj.getStatus().getState(), "")
+                || Objects.equals(obj.getStatus().getState(), ModelConstants.ARTIFACT_BUILD_NEW);
+    }
+
+    void lookup(String name, long requested) {
+        ArtifactBuild newObj = pendingLookups.remove(name);
+        if (newObj == null) {
+            return;
+        }
+        Log.infof("updating SCM info for %s", name);
+        if (newObj.getStatus() == null) {
+            newObj.setStatus(new ArtifactBuildStatus());
+        }
+        try {
+            boolean rebuilt = newObj.getMetadata().getAnnotations() != null
+                    && newObj.getMetadata().getAnnotations().containsKey(ModelConstants.REBUILT)
+                    && !newObj.getMetadata().getAnnotations()
+                            .containsKey(ModelConstants.DEPENDENCY_CREATED);
+            if (rebuilt) {
+                //if this is a forced rebuild we always update the SCM info
+                //there is a good chance there may be a new recipe
+                forceUpdate(requested);
+            }
+            Scm scm = new Scm();
+
+            if (newObj.getMetadata().getAnnotations() != null &&
+                    newObj.getMetadata().getAnnotations().containsKey(ModelConstants.DEPENDENCY_CREATED) &&
+                    ModelConstants.ARTIFACT_BUILD_NEW.equals(newObj.getStatus().getState())) {
+                // If originally created from a DependencyBuild using a custom SCM but we're doing a rebuild
+                // then don't use the recipe DB for GAV lookup.
+                scm = newObj.getStatus().getScm();
+                Log.infof("Tagging artifactBuild for rebuild with URI %s and hash %s ", scm.getScmURL(),
+                        scm.getCommitHash());
+            } else if (newObj.getMetadata().getAnnotations() != null &&
+                    newObj.getMetadata().getAnnotations().containsKey(ModelConstants.DEPENDENCY_CREATED)) {
+                // If the DependencyBuild was created directly no need to look up the GAV source, instead gather
+                // from existing dependency.
+                var depName = newObj.getMetadata().getAnnotations().get(ModelConstants.DEPENDENCY_CREATED);
+                var resource = client.resources(DependencyBuild.class).withName(depName);
+                DependencyBuild dependencyBuild = resource.get();
+                var scmInfo = dependencyBuild.getSpec().getScm();
+                scm.setScmType("git");
+                scm.setScmURL(scmInfo.getScmURL());
+                scm.setCommitHash(scmInfo.getCommitHash());
+                scm.setPath(scmInfo.getPath());
+                scm.set_private(scmInfo.get_private());
+                scm.setTag(scmInfo.getTag());
+                Log.infof(
+                        "Updating artifactBuild with Dependency %s (state: %s) with GAV %s with URI %s and hash %s ",
+                        depName, dependencyBuild.getStatus().getState(), newObj.getSpec().getGav(),
+                        scm.getScmURL(), scm.getCommitHash());
+            } else {
+                //a rebuilt artifact may have been tagged since its repositories were cached, so their tags are refetched
+                var result = recipeManager.locator().resolveTagInfo(GAV.parse(newObj.getSpec().getGav()), rebuilt);
+                scm.setScmType("git");
+                scm.setScmURL(result.getRepoInfo().getUri());
+                scm.setCommitHash(result.getHash());
+                String path = result.getRepoInfo().getPath();
+                if (path != null && path.startsWith("/")) {
+                    path = path.substring(1);
+                }
+                scm.setPath(path);
+                scm.set_private(result.getRepoInfo().isPrivateRepo());
+                scm.setTag(result.getTag());
+                Log.infof("Adding artifactBuild with GAV %s with URI %s and hash %s ",
+                        newObj.getSpec().getGav(), result.getRepoInfo().getUri(), result.getHash());
+            }
+            newObj.getStatus().setState(ModelConstants.ARTIFACT_BUILD_DISCOVERING);
+            newObj.getStatus().setScm(scm);
+            newObj.getStatus().setMessage("");
+        } catch (Exception e) {
+            Log.errorf(e, "Failed to update rebuilt object");
+            newObj.getStatus().setMessage(e.getMessage());
+            newObj.getStatus().setState(ModelConstants.ARTIFACT_BUILD_MISSING);
+            // Not setting status label to missing here but will be handled in artifactbuild.go Reconcile
+            // operator loop that calls updateLabel.
+        }
+        pendingStatus.put(name, new PendingStatus(newObj, 0));
+    }
+
+    /**
+     * Updates the recipe repositories, unless an update was started after the lookup was requested, so a burst of
+     * rebuilds only results in a single update.
+     */
+    private void forceUpdate(long requested) {
+        synchronized (updateLock) {
+            if (lastUpdate - requested > 0) {
+                return;
+            }
+            lastUpdate = System.nanoTime();
+            recipeManager.forceUpdate();
+        }
+    }
+
+    /**
+     * Writes out the results of the lookups completed since the last run.
+     */
+    void writeStatus() {
+        for (var name : List.copyOf(pendingStatus.keySet())) {
+            var pending = pendingStatus.remove(name);
+            if (pending == null) {
+                continue;
+            }
+            try {
+                client.resource(pending.artifactBuild()).patchStatus();
+            } catch (KubernetesClientException e) {
+                if (e.getCode() == 409) {
+                    //conflict, we will see a new version soon
+                    continue;
+                }
+                retryStatus(name, pending, e);
+            } catch (Exception e) {
+                retryStatus(name, pending, e);
+            }
+        }
+    }
+
+    private void retryStatus(String name, PendingStatus pending, Exception e) {
+        Log.errorf(e, "Failed to update ArtifactBuild with discovery results");
+        if (pending.attempts() < MAX_STATUS_RETRIES) {
+            pendingStatus.putIfAbsent(name, new PendingStatus(pending.artifactBuild(), pending.attempts() + 1));
+        }
+    }
+
     public void addImageDeletionListener(Consumer<String> listener) {
         imageDeletionListeners.add(listener);
     }
@@ -172,4 +263,7 @@ public class ScmLookup {
     public boolean isPossiblyRebuilt(String gav) {
         return gavs.contains(gav);
     }
+
+    private record PendingStatus(ArtifactBuild artifactBuild, int attempts) {
+    }
 }
@@ -1,7 +1,9 @@
 package com.redhat.hacbs.artifactcache.resources;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -14,8 +16,11 @@ import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
 import com.redhat.hacbs.artifactcache.services.RecipeManager;
 import com.redhat.hacbs.common.sbom.GAV;
+import com.redhat.hacbs.recipes.scm.TagInfoResult;
 
 import io.quarkus.logging.Log;
 import io.smallrye.common.annotation.Blocking;
@@ -26,8 +31,15 @@ public class V2RecipeLookupResource {
 
     final RecipeManager recipeManager;
 
-    public V2RecipeLookupResource(RecipeManager recipeManager) {
+    /**
+     * The maximum number of artifacts that can be resolved in one batch request
+     */
+    final int maxBatchSize;
+
+    public V2RecipeLookupResource(RecipeManager recipeManager,
+            @ConfigProperty(name = "scm-info.batch.max-size", defaultValue = "500") int maxBatchSize) {
         this.recipeManager = recipeManager;
+        this.maxBatchSize = maxBatchSize;
     }
 
     @POST
@@ -43,6 +55,32 @@ public class V2RecipeLookupResource {
         }
     }
 
+    /**
+     * Resolves the SCM information for a set of artifacts in one call, returning the result for each artifact keyed by
+     * its GAV. Artifacts of the same project are only resolved once. Requests with more than the configured maximum
+     * number of artifacts are rejected.
+     */
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Path("scm-info/batch")
+    public Response resolveTagInfo(List<GAV> toBuild) {
+        if (toBuild == null || toBuild.size() > maxBatchSize) {
+            return Response.status(400)
+                    .entity("A batch must contain at most " + maxBatchSize + " artifacts").build();
+        }
+        try {
+            Map<String, TagInfoResult> ret = new LinkedHashMap<>();
+            for (var e : recipeManager.locator().resolveTagInfo(toBuild).entrySet()) {
+                ret.put(e.getKey().stringForm(), e.getValue());
+            }
+            return Response.ok(ret).build();
+        } catch (Exception e) {
+            Log.errorf(e, "Failed to lookup SCM info for %s", toBuild);
+            return Response.status(500).entity(e.getMessage()).build();
+        }
+    }
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Path("build-info")
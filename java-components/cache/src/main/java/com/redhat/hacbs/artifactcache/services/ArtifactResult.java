@@ -46,6 +46,13 @@ public class ArtifactResult implements AutoCloseable {
         return data;
     }
 
+    /**
+     * Returns the file on disk that backs this result, may be null
+     */
+    public Path getFile() {
+        return file;
+    }
+
     public Optional<String> getExpectedSha() {
         return expectedSha;
     }
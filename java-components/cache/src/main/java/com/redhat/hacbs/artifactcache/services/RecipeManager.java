@@ -12,6 +12,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
@@ -31,6 +33,7 @@ import com.redhat.hacbs.recipes.location.RecipeRepositoryManager;
 import com.redhat.hacbs.recipes.mavenrepo.MavenRepositoryInfo;
 import com.redhat.hacbs.recipes.mavenrepo.MavenRepositoryInfoManager;
 import com.redhat.hacbs.recipes.scm.GitScmLocator;
+import com.redhat.hacbs.recipes.scm.TagCache;
 import com.redhat.hacbs.recipes.tools.BuildToolInfo;
 import com.redhat.hacbs.recipes.tools.BuildToolInfoManager;
 import com.redhat.hacbs.recipes.util.FileUtil;
@@ -48,9 +51,24 @@ public class RecipeManager {
     @ConfigProperty(name = "build-info.repositories", defaultValue = BuildRecipe.DEFAULT_RECIPE_REPO_URL)
     List<String> buildInfoRepos;
 
+    /**
+     * How long the tags of code repositories are cached before they are revalidated
+     */
+    @ConfigProperty(name = "scm.tag-cache.ttl", defaultValue = "10m")
+    Duration tagCacheTtl;
+
+    @ConfigProperty(name = "cache-path")
+    Path cachePath;
+
     final List<RecipeDirectory> recipeDirs = new ArrayList<>();
     final List<Path> tempFiles = new ArrayList<>();
     RecipeGroupManager recipeGroupManager;
+    TagCache tagCache;
+    /**
+     * Parsed repository info files, removed when the files change
+     */
+    final Map<Path, MavenRepositoryInfo> repositoryInfo = new ConcurrentHashMap<>();
+    final AtomicLong recipeGeneration = new AtomicLong();
 
     @PostConstruct
     void setup() throws IOException, GitAPIException {
@@ -58,16 +76,40 @@ public class RecipeManager {
             Path tempDir = Files.createTempDirectory("recipe");
             Log.infof("Reading repos from %s at %s", i, tempDir);
             tempFiles.add(tempDir);
-            recipeDirs
-                    .add(RecipeRepositoryManager.create(i, Optional.of(Duration.of(1, ChronoUnit.MINUTES)), tempDir));
+            var manager = RecipeRepositoryManager.create(i, Optional.of(Duration.of(1, ChronoUnit.MINUTES)), tempDir);
+            manager.addChangeListener(this::recipesChanged);
+            recipeDirs.add(manager);
         }
         recipeGroupManager = new RecipeGroupManager(recipeDirs);
+        tagCache = new TagCache(tagCacheTtl, cachePath.resolve("scm-tags"));
     }
 
+    /**
+     * Updates the recipe repositories. Cached tags are not discarded here, lookups that need fresh tags ask for them
+     * with the {@code refreshTags} flag of {@link GitScmLocator}.
+     */
     public void forceUpdate() {
         recipeGroupManager.forceUpdate();
     }
 
+    void recipesChanged(Set<Path> files) {
+        recipeGeneration.incrementAndGet();
+        repositoryInfo.keySet().removeAll(files);
+    }
+
+    private MavenRepositoryInfo parseRepositoryInfo(Path path) throws IOException {
+        var info = repositoryInfo.get(path);
+        if (info == null) {
+            long generation = recipeGeneration.get();
+            info = MavenRepositoryInfoManager.INSTANCE.parse(path);
+            //don't cache the result if the file may have changed while it was being parsed
+            if (generation == recipeGeneration.get()) {
+                repositoryInfo.put(path, info);
+            }
+        }
+        return info;
+    }
+
     @PreDestroy
     void clear() {
         for (var i : tempFiles) {
@@ -79,6 +121,7 @@ public class RecipeManager {
         return GitScmLocator.builder()
                 .setRecipeGroupManager(recipeGroupManager)
                 .setFallback(cachePomScmLocator)
+                .setTagCache(tagCache)
                 .build();
     }
 
@@ -88,7 +131,7 @@ public class RecipeManager {
             var path = i.getRepositoryPaths(repo);
             if (path.isPresent()) {
                 try {
-                    ret.add(MavenRepositoryInfoManager.INSTANCE.parse(path.get()));
+                    ret.add(parseRepositoryInfo(path.get()));
                 } catch (IOException e) {
                     Log.errorf(e, "Failed to parse repository info file %s", path.get());
                 }
@@ -104,7 +147,7 @@ public class RecipeManager {
             for (var path : paths) {
                 try {
                     ret.put(path.getFileName().toString().replace(".yaml", ""),
-                            MavenRepositoryInfoManager.INSTANCE.parse(path));
+                            parseRepositoryInfo(path));
                 } catch (IOException e) {
                     Log.errorf(e, "Failed to parse repository info file %s", path);
                 }
@@ -137,7 +180,7 @@ public class RecipeManager {
         if (path == null) {
             return null;
         }
-        return BuildRecipe.BUILD.getHandler().parse(path);
+        return BuildRecipe.BUILD.parseShared(path);
     }
 
     public List<String> getDisabledPlugins(String name) {
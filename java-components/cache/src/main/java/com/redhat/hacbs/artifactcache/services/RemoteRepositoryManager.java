@@ -1,5 +1,6 @@
 package com.redhat.hacbs.artifactcache.services;
 
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
@@ -16,6 +17,7 @@ import org.eclipse.microprofile.config.Config;
 import com.redhat.hacbs.artifactcache.artifactwatch.RebuiltArtifacts;
 import com.redhat.hacbs.artifactcache.services.client.maven.MavenClient;
 import com.redhat.hacbs.artifactcache.services.client.ociregistry.OCIRepositoryClient;
+import com.redhat.hacbs.classfile.tracker.InstrumentedClassCache;
 import com.redhat.hacbs.resources.model.v1alpha1.Util;
 import com.redhat.hacbs.resources.model.v1alpha1.jbsconfigstatus.ImageRegistry;
 
@@ -41,6 +43,7 @@ public class RemoteRepositoryManager {
     private static final String INSECURE = ".insecure";
     public static final String ARTIFACT_DEPLOYMENTS = "artifact-deployments";
     private static final String HACBS = "hacbs";
+    private static final String INSTRUMENTED_CLASSES = "instrumented-classes";
     private final ConcurrentHashMap<String, List<RepositoryCache>> remoteStores = new ConcurrentHashMap<>();
 
     @Inject
@@ -56,10 +59,20 @@ public class RemoteRepositoryManager {
 
     StorageManager hacbsStorageMgr;
     private RepositoryCache rebuiltCache;
+    private InstrumentedClassCache instrumentedClassCache;
 
     @PostConstruct
-    void setup() throws URISyntaxException {
+    void setup() throws URISyntaxException, IOException {
         hacbsStorageMgr = storageManager.resolve(HACBS);
+        //off by default, the transformed jars are already cached so the memo only helps once they are evicted
+        var instrumentedClassCacheSize = config.getOptionalValue("instrumented-class-cache.max-entries", int.class)
+                .orElse(0);
+        if (instrumentedClassCacheSize > 0) {
+            boolean persistent = config.getOptionalValue("instrumented-class-cache.persistent", boolean.class)
+                    .orElse(false);
+            instrumentedClassCache = new InstrumentedClassCache(instrumentedClassCacheSize,
+                    persistent ? storageManager.accessDirectory(INSTRUMENTED_CLASSES) : null);
+        }
         //TODO: this is a bit of a hack
         //we read the deployment config and if present use it to configure the 'rebuilt' repo
         var registryOwner = config.getOptionalValue("registry.owner", String.class);
@@ -73,7 +86,8 @@ public class RemoteRepositoryManager {
                     RepositoryType.MAVEN2,
                     new MavenClient("rebuilt", new URI(mavenRepo.get()), 1, mavenUsername.orElse(null),
                             mavenPassword.orElse(null)));
-            rebuiltCache = new RepositoryCache(storageManager.resolve("rebuilt"), rebuiltRepo, false);
+            rebuiltCache = new RepositoryCache(storageManager.resolve("rebuilt"), rebuiltRepo, false,
+                    instrumentedClassCache);
             remoteStores.put("rebuilt", List.of(rebuiltCache));
 
         } else if (registryOwner.isPresent()) {
@@ -91,7 +105,8 @@ public class RemoteRepositoryManager {
                     new OCIRepositoryClient(host + (port == 443 ? "" : ":" + port), registryOwner.get(), repository,
                             token, prependTag,
                             insecure, rebuiltArtifacts, hacbsStorageMgr));
-            rebuiltCache = new RepositoryCache(storageManager.resolve("rebuilt"), rebuiltRepo, false);
+            rebuiltCache = new RepositoryCache(storageManager.resolve("rebuilt"), rebuiltRepo, false,
+                    instrumentedClassCache);
             remoteStores.put("rebuilt", List.of(rebuiltCache));
         }
         var sharedRegistries = config.getOptionalValue("shared.registries", String.class);
@@ -120,7 +135,8 @@ public class RemoteRepositoryManager {
                                 hacbsStorageMgr));
 
                 remoteStores.put(name,
-                        List.of(new RepositoryCache(storageManager.resolve(name), rebuiltRepo, false)));
+                        List.of(new RepositoryCache(storageManager.resolve(name), rebuiltRepo, false,
+                                instrumentedClassCache)));
             }
         }
         rebuiltArtifacts.addImageDeletionListener(new RebuiltArtifacts.RebuiltArtifactDeletionListener() {
@@ -150,7 +166,8 @@ public class RemoteRepositoryManager {
                     store = new ArrayList<>();
                     if (repo != null) {
                         for (var i : repo) {
-                            store.add(new RepositoryCache(storageManager.resolve(i.getName()), i, true));
+                            store.add(new RepositoryCache(storageManager.resolve(i.getName()), i, true,
+                                    instrumentedClassCache));
                         }
                     }
                     remoteStores.put(name, store);
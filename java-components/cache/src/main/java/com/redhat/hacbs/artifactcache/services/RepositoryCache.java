@@ -3,6 +3,7 @@ package com.redhat.hacbs.artifactcache.services;
 import static com.redhat.hacbs.classfile.tracker.TrackingData.extractClassifier;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -11,7 +12,6 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.security.MessageDigest;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -26,7 +26,9 @@ import org.apache.commons.lang3.StringUtils;
 
 import com.redhat.hacbs.classfile.tracker.ClassFileTracker;
 import com.redhat.hacbs.classfile.tracker.HashingOutputStream;
+import com.redhat.hacbs.classfile.tracker.InstrumentedClassCache;
 import com.redhat.hacbs.classfile.tracker.TrackingData;
+import com.redhat.hacbs.classfile.tracker.TrackingDataIndex;
 import com.redhat.hacbs.common.sbom.GAV;
 
 import io.quarkus.logging.Log;
@@ -50,6 +52,11 @@ public class RepositoryCache {
 
     final boolean overwriteExistingBytecodeMarkers;
 
+    /**
+     * Memo of instrumented class bytes that is shared between all repositories, may be null
+     */
+    final InstrumentedClassCache instrumentedClassCache;
+
     /**
      * Tracks in progress downloads to prevent concurrency issues
      */
@@ -64,12 +71,18 @@ public class RepositoryCache {
     final Map<String, Object> inUseTracker = new HashMap<>();
 
     public RepositoryCache(StorageManager storageManager, Repository repository, boolean overwriteExistingBytecodeMarkers) {
+        this(storageManager, repository, overwriteExistingBytecodeMarkers, null);
+    }
+
+    public RepositoryCache(StorageManager storageManager, Repository repository, boolean overwriteExistingBytecodeMarkers,
+            InstrumentedClassCache instrumentedClassCache) {
         this.storageManager = storageManager;
         this.downloaded = storageManager.resolve(ORIGINAL);
         this.transformed = storageManager.resolve(TRANSFORMED);
         this.tempDownloads = storageManager.resolve(DOWNLOADS);
         this.repository = repository;
         this.overwriteExistingBytecodeMarkers = overwriteExistingBytecodeMarkers;
+        this.instrumentedClassCache = instrumentedClassCache;
         Log.infof("Creating cache with path %s", storageManager.toString());
     }
 
@@ -98,6 +111,35 @@ public class RepositoryCache {
             return Optional
                     .of(new ArtifactResult(null, new ByteArrayInputStream(bytes), bytes.length, Optional.empty(), Map.of()));
 
+        } else if (tracked && target.endsWith(".jar" + TrackingDataIndex.SUFFIX)) {
+            String jarTarget = target.substring(0, target.length() - TrackingDataIndex.SUFFIX.length());
+            var jarResult = getArtifactFile(group, artifact, version, jarTarget, tracked, cacheOnly);
+            if (jarResult.isEmpty()) {
+                return Optional.empty();
+            }
+            try (var jar = jarResult.get()) {
+                Path jarFile = jar.getFile();
+                Optional<String> expectedSha = jar.getExpectedSha();
+                if (jarFile == null || expectedSha.isEmpty()) {
+                    return Optional.empty();
+                }
+                //the index is created lazily the first time it is requested, and then kept next to the jar
+                var index = TrackingDataIndex.readSidecar(jarFile);
+                if (index == null || !index.getSha().equalsIgnoreCase(expectedSha.get())) {
+                    try (var in = Files.newInputStream(jarFile)) {
+                        index = ClassFileTracker.createTrackingDataIndex(in, jarTarget, expectedSha.get());
+                    }
+                    index.write(jarFile);
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                index.write(out);
+                byte[] bytes = out.toByteArray();
+                return Optional
+                        .of(new ArtifactResult(null, new ByteArrayInputStream(bytes), bytes.length, Optional.empty(),
+                                Map.of()));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
         } else {
             //TODO: we don't really care about the policy when using standard maven repositories
             String targetFile = group.replace('.', File.separatorChar) + File.separator + artifact
@@ -253,7 +295,7 @@ public class RepositoryCache {
                         ClassFileTracker.addTrackingDataToJar(in,
                                 new TrackingData(gav, repository.getName(), attributes),
                                 hashingOutputStream,
-                                overwriteExistingBytecodeMarkers);
+                                overwriteExistingBytecodeMarkers, instrumentedClassCache);
                         hashingOutputStream.close();
 
                         Files.writeString(instrumentedSha, hashingOutputStream.getHash());
@@ -341,16 +383,11 @@ public class RepositoryCache {
             try {
                 Optional<ArtifactResult> result = clientInvocation.apply(repositoryClient);
                 if (result.isPresent()) {
-                    MessageDigest md = MessageDigest.getInstance("SHA-1");
                     Path tempFile = Files.createTempFile(downloadTempDir.accessDirectory("downloads"), "download", ".part");
                     InputStream in = result.get().getData();
-                    try (OutputStream out = Files.newOutputStream(tempFile)) {
-                        byte[] buffer = new byte[1024];
-                        int r;
-                        while ((r = in.read(buffer)) > 0) {
-                            out.write(buffer, 0, r);
-                            md.update(buffer, 0, r);
-                        }
+                    HashingOutputStream hashingOutputStream = new HashingOutputStream(Files.newOutputStream(tempFile));
+                    try (hashingOutputStream) {
+                        in.transferTo(hashingOutputStream);
                     } finally {
                         try {
                             in.close();
@@ -359,12 +396,7 @@ public class RepositoryCache {
                         }
                     }
                     if (result.get().getExpectedSha().isPresent()) {
-                        byte[] digest = md.digest();
-                        StringBuilder sb = new StringBuilder(40);
-                        for (int i = 0; i < digest.length; ++i) {
-                            sb.append(Integer.toHexString((digest[i] & 0xFF) | 0x100).substring(1, 3));
-                        }
-                        String hash = sb.toString();
+                        String hash = hashingOutputStream.getHash();
 
                         if (!hash.equalsIgnoreCase(result.get().getExpectedSha().get())) {
                             Log.error("Filed to cache " + downloadTarget + " from " + repositoryClient.getName()
@@ -380,7 +412,7 @@ public class RepositoryCache {
                                             : Map.of();
                                     ClassFileTracker.addTrackingDataToJar(inFromFile,
                                             new TrackingData(gav, repository.getName(), attributes),
-                                            transformedOut, overwriteExistingBytecodeMarkers);
+                                            transformedOut, overwriteExistingBytecodeMarkers, instrumentedClassCache);
                                 }
                                 Files.delete(tempFile);
                                 return Optional
@@ -5,8 +5,11 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.BiConsumer;
@@ -30,6 +33,19 @@ public class ClassFileTracker {
     public static final Logger LOGGER = Logger.getLogger("dependency-analyser");
 
     public static byte[] addTrackingDataToClass(byte[] classData, TrackingData data, String name, boolean overwrite) {
+        return addTrackingDataToClass(classData, data, name, overwrite, null);
+    }
+
+    public static byte[] addTrackingDataToClass(byte[] classData, TrackingData data, String name, boolean overwrite,
+            InstrumentedClassCache cache) {
+        String key = null;
+        if (cache != null) {
+            key = InstrumentedClassCache.key(classData, data, overwrite);
+            byte[] existing = cache.get(key);
+            if (existing != null) {
+                return existing;
+            }
+        }
         try {
             ClassReader classReader = new ClassReader(classData);
             ClassWriter writer = new ClassWriter(classReader, 0);
@@ -37,7 +53,11 @@ public class ClassFileTracker {
                     overwrite);
             classReader.accept(classTrackingVisitor,
                     new Attribute[] { new ClassFileSourceAttribute(new TrackingData("dummy", "dummy", Map.of())) }, 0);
-            return writer.toByteArray();
+            byte[] result = writer.toByteArray();
+            if (cache != null) {
+                cache.put(key, result);
+            }
+            return result;
         } catch (Exception e) {
             Logger.getLogger(ClassFileTracker.class.getName()).log(Level.SEVERE,
                     "Failed to add tracking data to class: " + name, e);
@@ -68,6 +88,11 @@ public class ClassFileTracker {
 
     public static void addTrackingDataToJar(InputStream input, TrackingData data, OutputStream out, boolean overwrite)
             throws IOException, ZipException {
+        addTrackingDataToJar(input, data, out, overwrite, null);
+    }
+
+    public static void addTrackingDataToJar(InputStream input, TrackingData data, OutputStream out, boolean overwrite,
+            InstrumentedClassCache cache) throws IOException, ZipException {
         Set<String> seen = new HashSet<>();
         try (ZipInputStream zipIn = new ZipInputStream(input)) {
             try (ZipOutputStream zipOut = new ZipOutputStream(out)) {
@@ -83,7 +108,8 @@ public class ClassFileTracker {
                             if (entry.getLastModifiedTime() != null) {
                                 newEntry.setLastModifiedTime(entry.getLastModifiedTime());
                             }
-                            byte[] modified = addTrackingDataToClass(zipIn.readAllBytes(), data, entry.getName(), overwrite);
+                            byte[] modified = addTrackingDataToClass(zipIn.readAllBytes(), data, entry.getName(), overwrite,
+                                    cache);
                             newEntry.setSize(modified.length);
                             zipOut.putNextEntry(newEntry);
                             zipOut.write(modified);
@@ -96,7 +122,7 @@ public class ClassFileTracker {
                                 newEntry.setLastModifiedTime(entry.getLastModifiedTime());
                             }
                             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                            addTrackingDataToJar(new NoCloseInputStream(zipIn), data, baos, overwrite);
+                            addTrackingDataToJar(new NoCloseInputStream(zipIn), data, baos, overwrite, cache);
                             byte[] modified = baos.toByteArray();
                             newEntry.setSize(modified.length);
                             zipOut.putNextEntry(newEntry);
@@ -168,11 +194,43 @@ public class ClassFileTracker {
         return ret;
     }
 
+    /**
+     * Reads the tracking data from a file on disk. The archive itself is always read, any {@link TrackingDataIndex}
+     * sidecar next to it is ignored as the files are usually produced by the build being checked, which could also
+     * have written the sidecar.
+     */
+    public static Set<TrackingData> readTrackingDataFromFile(Path file, BiConsumer<String, byte[]> untrackedClassesListener)
+            throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return readTrackingDataFromFile(in, file.getFileName().toString(),
+                    untrackedClassesListener == null ? (s, b) -> {
+                    } : untrackedClassesListener);
+        }
+    }
+
+    public static Set<TrackingData> readTrackingDataFromFile(Path file) throws IOException {
+        return readTrackingDataFromFile(file, null);
+    }
+
+    /**
+     * Creates a {@link TrackingDataIndex} for the given archive contents, that have already been hashed.
+     */
+    public static TrackingDataIndex createTrackingDataIndex(InputStream contents, String fileName, String sha)
+            throws IOException {
+        Set<String> untracked = new LinkedHashSet<>();
+        Set<TrackingData> data = readTrackingDataFromFile(contents, fileName, (s, b) -> untracked.add(s));
+        return new TrackingDataIndex(sha, data, untracked);
+    }
+
     public static Set<TrackingData> readTrackingDataFromFile(InputStream contents, String fileName) throws IOException {
         return readTrackingDataFromFile(contents, fileName, (s, b) -> {
         });
     }
 
+    /**
+     * Reads the tracking data from the given file contents. The entries of tar and zip archives are analysed in
+     * parallel, so the untracked classes listener may be called in any order, although never concurrently.
+     */
     public static Set<TrackingData> readTrackingDataFromFile(InputStream contents, String fileName,
             BiConsumer<String, byte[]> untrackedClassesListener) throws IOException {
         if (fileName.endsWith(".class")) {
@@ -183,44 +241,37 @@ public class ClassFileTracker {
         } else if (fileName.endsWith(".jar")) {
             return ClassFileTracker.readTrackingDataFromJar(contents, fileName, untrackedClassesListener);
         } else if (fileName.endsWith(".tgz") || fileName.endsWith(".tar.gz")) {
-            try {
-                Set<TrackingData> ret = new HashSet<>();
+            try (ParallelArchiveScanner scanner = new ParallelArchiveScanner(untrackedClassesListener)) {
                 GZIPInputStream inputStream = new GZIPInputStream(contents);
                 TarArchiveInputStream tarArchiveInputStream = new TarArchiveInputStream(inputStream);
                 for (TarArchiveEntry entry = tarArchiveInputStream
                         .getNextEntry(); entry != null; entry = tarArchiveInputStream.getNextEntry()) {
-                    ret.addAll(readTrackingDataFromFile(new NoCloseInputStream(tarArchiveInputStream), entry.getName(),
-                            untrackedClassesListener));
+                    scanner.entry(entry.getName(), entry.getSize(), tarArchiveInputStream);
                 }
-                return ret;
+                return scanner.complete();
             } catch (Exception e) {
                 //we don't fail on archives
                 LOGGER.log(Level.SEVERE, "Failed to analyse archive " + fileName, e);
             }
         } else if (fileName.endsWith(".tar")) {
-            try {
-                Set<TrackingData> ret = new HashSet<>();
+            try (ParallelArchiveScanner scanner = new ParallelArchiveScanner(untrackedClassesListener)) {
                 TarArchiveInputStream tarArchiveInputStream = new TarArchiveInputStream(contents);
                 for (TarArchiveEntry entry = tarArchiveInputStream
                         .getNextEntry(); entry != null; entry = tarArchiveInputStream.getNextEntry()) {
-                    ret.addAll(readTrackingDataFromFile(new NoCloseInputStream(tarArchiveInputStream), entry.getName(),
-                            untrackedClassesListener));
+                    scanner.entry(entry.getName(), entry.getSize(), tarArchiveInputStream);
                 }
-                return ret;
+                return scanner.complete();
             } catch (Exception e) {
                 //we don't fail on archives
                 LOGGER.log(Level.SEVERE, "Failed to analyse archive " + fileName, e);
             }
         } else if (fileName.endsWith(".zip")) {
-            try {
-                Set<TrackingData> ret = new HashSet<>();
-                ZipInputStream tarArchiveInputStream = new ZipInputStream(contents);
-                for (var entry = tarArchiveInputStream
-                        .getNextEntry(); entry != null; entry = tarArchiveInputStream.getNextEntry()) {
-                    ret.addAll(readTrackingDataFromFile(new NoCloseInputStream(tarArchiveInputStream), entry.getName(),
-                            untrackedClassesListener));
+            try (ParallelArchiveScanner scanner = new ParallelArchiveScanner(untrackedClassesListener)) {
+                ZipInputStream zipInputStream = new ZipInputStream(contents);
+                for (var entry = zipInputStream.getNextEntry(); entry != null; entry = zipInputStream.getNextEntry()) {
+                    scanner.entry(entry.getName(), entry.getSize(), zipInputStream);
                 }
-                return ret;
+                return scanner.complete();
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Failed to analyse archive " + fileName, e);
             }
@@ -4,27 +4,64 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * An output stream that computes one or more digests of the data written to it in a single pass.
+ * <p>
+ * Digest instances are taken from a pool and returned when the stream is closed, so creating lots of these streams is
+ * cheap.
+ */
 public class HashingOutputStream extends OutputStream {
 
+    public static final String SHA_1 = "SHA-1";
+    public static final String SHA_256 = "SHA-256";
+    public static final String MD5 = "MD5";
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int MAX_POOLED = 16;
+    private static final Map<String, Queue<MessageDigest>> POOL = new ConcurrentHashMap<>();
+
     final OutputStream delegate;
-    final MessageDigest md;
-    String hash;
+    final String[] algorithms;
+    final MessageDigest[] digests;
+    Map<String, String> hashes;
 
     boolean closed;
 
     public HashingOutputStream(OutputStream delegate) {
+        this(delegate, SHA_1);
+    }
+
+    /**
+     * @param delegate The stream to write to
+     * @param algorithms The digest algorithms to compute, the first one is returned by {@link #getHash()}
+     */
+    public HashingOutputStream(OutputStream delegate, String... algorithms) {
+        if (algorithms.length == 0) {
+            throw new IllegalArgumentException("At least one algorithm is required");
+        }
         this.delegate = delegate;
-        try {
-            md = MessageDigest.getInstance("SHA-1");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
+        this.algorithms = algorithms;
+        this.digests = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; ++i) {
+            digests[i] = acquire(algorithms[i]);
         }
     }
 
     @Override
     public void write(int b) throws IOException {
-        write(new byte[] { (byte) b });
+        ensureOpen();
+        delegate.write(b);
+        for (var md : digests) {
+            md.update((byte) b);
+        }
     }
 
     @Override
@@ -34,8 +71,11 @@ public class HashingOutputStream extends OutputStream {
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
         delegate.write(b, off, len);
-        md.update(b, off, len);
+        for (var md : digests) {
+            md.update(b, off, len);
+        }
     }
 
     @Override
@@ -48,16 +88,78 @@ public class HashingOutputStream extends OutputStream {
         delegate.close();
         if (!closed) {
             closed = true;
-            byte[] digest = md.digest();
-            StringBuilder sb = new StringBuilder(40);
-            for (int i = 0; i < digest.length; ++i) {
-                sb.append(Integer.toHexString((digest[i] & 0xFF) | 0x100).substring(1, 3));
+            Map<String, String> result = new LinkedHashMap<>();
+            for (int i = 0; i < digests.length; ++i) {
+                result.put(algorithms[i], toHex(digests[i].digest()));
+                release(digests[i]);
+                digests[i] = null;
             }
-            hash = sb.toString();
+            hashes = Collections.unmodifiableMap(result);
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        //the digests have been returned to the pool, so must not be updated
+        if (closed) {
+            throw new IOException("Stream closed");
         }
     }
 
+    /**
+     * @return The hex encoded hash for the first algorithm, or null if the stream has not been closed
+     */
     public String getHash() {
-        return hash;
+        return getHash(algorithms[0]);
+    }
+
+    /**
+     * @return The hex encoded hash for the given algorithm, or null if the stream has not been closed
+     */
+    public String getHash(String algorithm) {
+        if (hashes == null) {
+            return null;
+        }
+        return hashes.get(algorithm);
+    }
+
+    /**
+     * @return All the hex encoded hashes, keyed by algorithm, or null if the stream has not been closed
+     */
+    public Map<String, String> getHashes() {
+        return hashes;
+    }
+
+    public static String toHex(byte[] digest) {
+        return HEX.formatHex(digest);
+    }
+
+    /**
+     * Gets a digest from the pool, or creates a new one if none are available.
+     */
+    public static MessageDigest acquire(String algorithm) {
+        var pooled = POOL.get(algorithm);
+        if (pooled != null) {
+            var md = pooled.poll();
+            if (md != null) {
+                return md;
+            }
+        }
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Resets the digest and returns it to the pool.
+     */
+    public static void release(MessageDigest md) {
+        md.reset();
+        var pooled = POOL.computeIfAbsent(md.getAlgorithm(), k -> new ConcurrentLinkedQueue<>());
+        //the size check is racy, but it only needs to stop the pool growing without bound
+        if (pooled.size() < MAX_POOLED) {
+            pooled.offer(md);
+        }
     }
 }
@@ -0,0 +1,130 @@
+package com.redhat.hacbs.classfile.tracker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+
+/**
+ * A bounded, content addressed memo of instrumented class bytes.
+ * <p>
+ * The instrumented output is keyed on the SHA-256 of the input bytes and the tracking data that was applied. As the
+ * tracking data includes the GAV of the artifact and the repository it was served from, entries are only reused when
+ * the same artifact is instrumented again from the same repository (e.g. it is re-downloaded after the transformed
+ * local copy was evicted), not for copies of a class that are shaded into different artifacts. Every lookup hashes
+ * the class and copies the bytes, so this only pays off if such re-downloads are common.
+ * <p>
+ * Entries are held in a size limited in memory LRU map, and can optionally be persisted to a directory so they can be
+ * shared between invocations. The directory may be deleted at any time, missing entries are just treated as a miss.
+ * Arrays are copied on the way in and out, so callers are free to modify them.
+ */
+public class InstrumentedClassCache {
+
+    private static final String SUFFIX = ".class";
+
+    private final int maxEntries;
+    private final Path directory;
+    private final Map<String, byte[]> entries;
+
+    /**
+     * @param maxEntries The maximum number of entries to hold in memory
+     * @param directory The directory to persist entries to, may be null
+     */
+    public InstrumentedClassCache(int maxEntries, Path directory) {
+        this.maxEntries = maxEntries;
+        this.directory = directory;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > InstrumentedClassCache.this.maxEntries;
+            }
+        };
+    }
+
+    public InstrumentedClassCache(int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    public byte[] get(String key) {
+        synchronized (entries) {
+            byte[] result = entries.get(key);
+            if (result != null) {
+                return result.clone();
+            }
+        }
+        if (directory == null) {
+            return null;
+        }
+        try {
+            byte[] result = Files.readAllBytes(resolve(key));
+            synchronized (entries) {
+                entries.put(key, result.clone());
+            }
+            return result;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            ClassFileTracker.LOGGER.log(Level.WARNING, "Failed to read instrumented class " + key, e);
+            return null;
+        }
+    }
+
+    public void put(String key, byte[] instrumented) {
+        synchronized (entries) {
+            entries.put(key, instrumented.clone());
+        }
+        if (directory == null) {
+            return;
+        }
+        try {
+            Path target = resolve(key);
+            if (Files.exists(target)) {
+                return;
+            }
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), key, ".part");
+            Files.write(temp, instrumented);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            ClassFileTracker.LOGGER.log(Level.WARNING, "Failed to persist instrumented class " + key, e);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Computes the cache key for the given class bytes and tracking data.
+     */
+    public static String key(byte[] classData, TrackingData data, boolean overwrite) {
+        MessageDigest md = HashingOutputStream.acquire(HashingOutputStream.SHA_256);
+        try {
+            md.update(classData);
+            StringBuilder sb = new StringBuilder();
+            sb.append('\0').append(data.gav).append('\0').append(data.source).append('\0').append(overwrite);
+            if (data.getAttributes() != null) {
+                for (var e : new TreeMap<>(data.getAttributes()).entrySet()) {
+                    sb.append('\0').append(e.getKey()).append('=').append(e.getValue());
+                }
+            }
+            md.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return HashingOutputStream.toHex(md.digest());
+        } finally {
+            HashingOutputStream.release(md);
+        }
+    }
+
+    private Path resolve(String key) {
+        return directory.resolve(key.substring(0, 2)).resolve(key + SUFFIX);
+    }
+}
@@ -0,0 +1,189 @@
+package com.redhat.hacbs.classfile.tracker;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+/**
+ * Scans the entries of a tar or zip archive for tracking data.
+ * <p>
+ * Reading the archive is a single sequential stream, but analysing the classes and nested jars it contains is not, so
+ * the archive is read on the calling thread and the contents of each entry are handed off to a bounded worker pool.
+ * Nested archives are analysed on the worker thread without any further parallelism, so workers never block waiting on
+ * the pool. The amount of entry data buffered at any one time is bounded by {@link #MAX_IN_FLIGHT_BYTES}.
+ * <p>
+ * Calls to the untracked classes listener are serialised, but as entries are analysed concurrently they are made in no
+ * particular order, rather than in archive order. The scanner must be closed once the archive has been read, so that if
+ * reading it failed part way through the outstanding entries are not analysed after the scan has returned.
+ */
+class ParallelArchiveScanner implements AutoCloseable {
+
+    /**
+     * Entries larger than this are analysed directly from the archive stream rather than being buffered.
+     */
+    static final long MAX_BUFFERED_ENTRY_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * The maximum number of bytes of entry data that can be buffered waiting for, or being analysed by, the workers.
+     */
+    static final int MAX_IN_FLIGHT_BYTES = Integer.getInteger("hacbs.classfile-tracker.max-in-flight-bytes",
+            64 * 1024 * 1024);
+
+    static final int THREADS = Integer.getInteger("hacbs.classfile-tracker.threads",
+            Runtime.getRuntime().availableProcessors());
+
+    private static final ThreadLocal<Boolean> WORKER = new ThreadLocal<>();
+    private static volatile ExecutorService executor;
+
+    private final Set<TrackingData> results = ConcurrentHashMap.newKeySet();
+    private final List<Future<?>> tasks = new ArrayList<>();
+    private final BiConsumer<String, byte[]> untrackedClassesListener;
+    private final Semaphore inFlight;
+    private final boolean parallel;
+
+    ParallelArchiveScanner(BiConsumer<String, byte[]> untrackedClassesListener) {
+        //listeners are not expected to be thread safe, so calls to them are serialised
+        this.untrackedClassesListener = untrackedClassesListener == null ? null : (name, data) -> {
+            synchronized (untrackedClassesListener) {
+                untrackedClassesListener.accept(name, data);
+            }
+        };
+        this.parallel = THREADS > 1 && WORKER.get() == null;
+        this.inFlight = new Semaphore(MAX_IN_FLIGHT_BYTES);
+    }
+
+    /**
+     * Handles an entry from the archive, the stream is positioned at the start of the entry contents.
+     */
+    void entry(String name, long size, InputStream archive) throws IOException {
+        if (!isAnalysed(name)) {
+            return;
+        }
+        if (!parallel || size > MAX_BUFFERED_ENTRY_SIZE) {
+            results.addAll(ClassFileTracker.readTrackingDataFromFile(new NoCloseInputStream(archive), name,
+                    untrackedClassesListener));
+            return;
+        }
+        //if the size is known the permits are acquired before the entry is buffered, otherwise only after it has been
+        //read, so at most one entry of unknown size is held outside the limit
+        byte[] contents = null;
+        if (size < 0) {
+            contents = archive.readAllBytes();
+        }
+        int permits = permits(contents == null ? size : contents.length);
+        try {
+            inFlight.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        byte[] data;
+        try {
+            data = contents == null ? archive.readAllBytes() : contents;
+        } catch (IOException | RuntimeException e) {
+            inFlight.release(permits);
+            throw e;
+        }
+        tasks.add(executor().submit(() -> {
+            WORKER.set(Boolean.TRUE);
+            try {
+                results.addAll(ClassFileTracker.readTrackingDataFromFile(new ByteArrayInputStream(data), name,
+                        untrackedClassesListener));
+                return null;
+            } finally {
+                WORKER.remove();
+                inFlight.release(permits);
+            }
+        }));
+    }
+
+    /**
+     * Returns the number of permits needed to buffer an entry, entries larger than the limit take all the permits so
+     * they are analysed on their own rather than blocking forever.
+     */
+    static int permits(long size) {
+        return (int) Math.max(1, Math.min(size, MAX_IN_FLIGHT_BYTES));
+    }
+
+    /**
+     * Waits for all entries to be analysed, and returns the merged results.
+     */
+    Set<TrackingData> complete() throws IOException {
+        IOException failure = null;
+        for (var i : tasks) {
+            try {
+                i.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Cancels the entries that have not started being analysed, and waits for the ones that have. After this returns
+     * the untracked classes listener is not called again.
+     */
+    @Override
+    public void close() {
+        for (var i : tasks) {
+            i.cancel(false);
+        }
+        boolean interrupted = false;
+        for (var i : tasks) {
+            while (true) {
+                try {
+                    i.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (CancellationException | ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static boolean isAnalysed(String name) {
+        return name.endsWith(".class") || name.endsWith(".jar") || name.endsWith(".tgz") || name.endsWith(".tar.gz")
+                || name.endsWith(".tar") || name.endsWith(".zip");
+    }
+
+    private static ExecutorService executor() {
+        if (executor == null) {
+            synchronized (ParallelArchiveScanner.class) {
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(THREADS, r -> {
+                        Thread t = new Thread(r, "classfile-tracker-scanner");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,171 @@
+package com.redhat.hacbs.classfile.tracker;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A compact summary of the tracking data contained in an archive, keyed by the SHA-1 of the archive.
+ * <p>
+ * This is written as a sidecar file next to the archive, so later analysis of the same archive does not need to open
+ * it and parse every class. As the sidecar is not tied to the archive contents it must only be read from storage the
+ * producer of the archive cannot write to, such as the artifact cache's own copies of the jars it transforms.
+ */
+public class TrackingDataIndex {
+
+    public static final String SUFFIX = ".tracking-index";
+
+    private static final int MAGIC = 0x48544958;
+    private static final int VERSION = 1;
+
+    private final String sha;
+    private final Set<TrackingData> trackingData;
+    private final Set<String> untrackedClasses;
+
+    public TrackingDataIndex(String sha, Set<TrackingData> trackingData, Set<String> untrackedClasses) {
+        this.sha = sha;
+        this.trackingData = Collections.unmodifiableSet(new LinkedHashSet<>(trackingData));
+        this.untrackedClasses = Collections.unmodifiableSet(new LinkedHashSet<>(untrackedClasses));
+    }
+
+    public String getSha() {
+        return sha;
+    }
+
+    public Set<TrackingData> getTrackingData() {
+        return trackingData;
+    }
+
+    public Set<String> getUntrackedClasses() {
+        return untrackedClasses;
+    }
+
+    /**
+     * Returns the path of the sidecar file for the given archive.
+     */
+    public static Path sidecarPath(Path archive) {
+        return archive.resolveSibling(archive.getFileName().toString() + SUFFIX);
+    }
+
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeUTF(sha);
+        data.writeInt(trackingData.size());
+        for (var i : trackingData) {
+            writeNullable(data, i.gav);
+            writeNullable(data, i.source);
+            Map<String, String> attributes = i.getAttributes() == null ? Map.of() : new TreeMap<>(i.getAttributes());
+            data.writeInt(attributes.size());
+            for (var e : attributes.entrySet()) {
+                data.writeUTF(e.getKey());
+                writeNullable(data, e.getValue());
+            }
+        }
+        data.writeInt(untrackedClasses.size());
+        for (var i : untrackedClasses) {
+            data.writeUTF(i);
+        }
+        data.flush();
+    }
+
+    /**
+     * Atomically writes this index as the sidecar of the given archive.
+     */
+    public void write(Path archive) throws IOException {
+        Path target = sidecarPath(archive);
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            write(out);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static TrackingDataIndex read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a tracking data index");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported tracking data index version " + version);
+        }
+        String sha = data.readUTF();
+        int count = data.readInt();
+        Set<TrackingData> trackingData = new LinkedHashSet<>();
+        for (int i = 0; i < count; ++i) {
+            String gav = readNullable(data);
+            String source = readNullable(data);
+            int attributeCount = data.readInt();
+            Map<String, String> attributes = new HashMap<>();
+            for (int j = 0; j < attributeCount; ++j) {
+                attributes.put(data.readUTF(), readNullable(data));
+            }
+            trackingData.add(new TrackingData(gav, source, attributes));
+        }
+        count = data.readInt();
+        Set<String> untracked = new LinkedHashSet<>();
+        for (int i = 0; i < count; ++i) {
+            untracked.add(data.readUTF());
+        }
+        return new TrackingDataIndex(sha, trackingData, untracked);
+    }
+
+    /**
+     * Reads the sidecar of the given archive, if present.
+     *
+     * @return The index, or null if there is no sidecar or it cannot be read
+     */
+    public static TrackingDataIndex readSidecar(Path archive) {
+        Path sidecar = sidecarPath(archive);
+        if (!Files.isRegularFile(sidecar)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(sidecar)) {
+            return read(in);
+        } catch (IOException e) {
+            ClassFileTracker.LOGGER.warning("Ignoring invalid tracking data index " + sidecar + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void writeNullable(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readUTF() : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        TrackingDataIndex that = (TrackingDataIndex) o;
+        return Objects.equals(sha, that.sha) && Objects.equals(trackingData, that.trackingData)
+                && Objects.equals(untrackedClasses, that.untrackedClasses);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sha, trackingData, untrackedClasses);
+    }
+}
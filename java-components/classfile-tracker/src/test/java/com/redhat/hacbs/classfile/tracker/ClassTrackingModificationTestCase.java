@@ -1,13 +1,27 @@
 package com.redhat.hacbs.classfile.tracker;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.jar.JarEntry;
+import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 public class ClassTrackingModificationTestCase {
 
@@ -41,4 +55,129 @@ public class ClassTrackingModificationTestCase {
         var results = ClassFileTracker.addTrackingDataToJar(out.toByteArray(), DATA, true);
         Assertions.assertEquals(Collections.singleton(DATA), ClassFileTracker.readTrackingDataFromJar(results, "test.jar"));
     }
+
+    @Test
+    public void testInstrumentedClassCache(@TempDir Path dir) throws Exception {
+        byte[] thisClass = getClass().getResourceAsStream(getClass().getSimpleName() + ".class").readAllBytes();
+        InstrumentedClassCache cache = new InstrumentedClassCache(10, dir);
+        var results = ClassFileTracker.addTrackingDataToClass(thisClass, DATA, "test", true, cache);
+        Assertions.assertEquals(1, cache.size());
+        var cached = ClassFileTracker.addTrackingDataToClass(thisClass, DATA, "test", true, cache);
+        Assertions.assertArrayEquals(results, cached);
+        //the cached bytes are copied, so modifying the result does not affect the cache
+        Assertions.assertNotSame(results, cached);
+        cached[0] = 0;
+        Assertions.assertArrayEquals(results, ClassFileTracker.addTrackingDataToClass(thisClass, DATA, "test", true, cache));
+        Assertions.assertEquals(DATA, ClassFileTracker.readTrackingInformationFromClass(results));
+
+        //different tracking data must not be served from the cache
+        var changed = ClassFileTracker.addTrackingDataToClass(thisClass, CHANGED_DATA, "test", true, cache);
+        Assertions.assertEquals(CHANGED_DATA, ClassFileTracker.readTrackingInformationFromClass(changed));
+        Assertions.assertEquals(2, cache.size());
+
+        //a new cache backed by the same directory should be able to read the persisted entries
+        InstrumentedClassCache persisted = new InstrumentedClassCache(10, dir);
+        Assertions.assertArrayEquals(results, persisted.get(InstrumentedClassCache.key(thisClass, DATA, true)));
+    }
+
+    @Test
+    public void testTrackingDataIndexSidecar(@TempDir Path dir) throws Exception {
+        byte[] thisClass = getClass().getResourceAsStream(getClass().getSimpleName() + ".class").readAllBytes();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.putNextEntry(new JarEntry(getClass().getPackageName().replace(".", "/") + "/Untracked.class"));
+        zip.write(thisClass);
+        zip.close();
+        Path jar = dir.resolve("test.jar");
+        Files.write(jar, ClassFileTracker.addTrackingDataToJar(out.toByteArray(), DATA, true));
+
+        TrackingDataIndex index;
+        try (var in = Files.newInputStream(jar)) {
+            index = ClassFileTracker.createTrackingDataIndex(in, "test.jar", "abc");
+        }
+        Assertions.assertEquals(Set.of(DATA), index.getTrackingData());
+        Assertions.assertTrue(index.getUntrackedClasses().isEmpty());
+        index.write(jar);
+        Assertions.assertEquals(index, TrackingDataIndex.readSidecar(jar));
+
+        //a sidecar next to the file is never trusted, even with a matching checksum file, as whatever wrote the
+        //archive could have written both
+        new TrackingDataIndex("abc", Set.of(CHANGED_DATA), Set.of()).write(jar);
+        Files.writeString(dir.resolve("test.jar.sha1"), "abc");
+        Assertions.assertEquals(Set.of(DATA), ClassFileTracker.readTrackingDataFromFile(jar));
+    }
+
+    @Test
+    public void testArchiveTracking() throws Exception {
+        byte[] thisClass = getClass().getResourceAsStream(getClass().getSimpleName() + ".class").readAllBytes();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.putNextEntry(new JarEntry(getClass().getPackageName().replace(".", "/") + getClass().getSimpleName() + ".class"));
+        zip.write(thisClass);
+        zip.close();
+        byte[] jar = out.toByteArray();
+
+        Set<TrackingData> expected = new HashSet<>();
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GZIPOutputStream(archive))) {
+            for (int i = 0; i < 20; ++i) {
+                TrackingData data = new TrackingData("com.acme:acme:" + i, "rebuilt", Map.of());
+                expected.add(data);
+                addTarEntry(tar, "lib/acme-" + i + ".jar", ClassFileTracker.addTrackingDataToJar(jar, data, true));
+            }
+            addTarEntry(tar, "lib/untracked.jar", jar);
+            addTarEntry(tar, "README.txt", "readme".getBytes(StandardCharsets.UTF_8));
+        }
+        List<String> untracked = new ArrayList<>();
+        var results = ClassFileTracker.readTrackingDataFromFile(new ByteArrayInputStream(archive.toByteArray()),
+                "dist.tar.gz", (name, data) -> untracked.add(name));
+        Assertions.assertEquals(expected, results);
+        Assertions.assertEquals(1, untracked.size());
+    }
+
+    @Test
+    public void testTruncatedArchive() throws Exception {
+        byte[] thisClass = getClass().getResourceAsStream(getClass().getSimpleName() + ".class").readAllBytes();
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GZIPOutputStream(archive))) {
+            for (int i = 0; i < 200; ++i) {
+                addTarEntry(tar, "classes/Untracked" + i + ".class", thisClass);
+            }
+        }
+        byte[] truncated = Arrays.copyOf(archive.toByteArray(), archive.size() / 2);
+        List<String> untracked = Collections.synchronizedList(new ArrayList<>());
+        ClassFileTracker.readTrackingDataFromFile(new ByteArrayInputStream(truncated), "dist.tar.gz",
+                (name, data) -> untracked.add(name));
+        //entries that were handed off before the failure must not be reported once the scan has returned
+        int reported = untracked.size();
+        Thread.sleep(200);
+        Assertions.assertEquals(reported, untracked.size());
+    }
+
+    private static void addTarEntry(TarArchiveOutputStream tar, String name, byte[] contents) throws Exception {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(contents.length);
+        tar.putArchiveEntry(entry);
+        tar.write(contents);
+        tar.closeArchiveEntry();
+    }
+
+    @Test
+    public void testMultipleDigests() throws Exception {
+        byte[] data = "hello world".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HashingOutputStream hashing = new HashingOutputStream(out, HashingOutputStream.SHA_1, HashingOutputStream.SHA_256,
+                HashingOutputStream.MD5);
+        hashing.write(data, 0, 5);
+        hashing.write(data[5]);
+        hashing.write(data, 6, data.length - 6);
+        hashing.close();
+        Assertions.assertArrayEquals(data, out.toByteArray());
+        Assertions.assertEquals("2aae6c35c94fcfb415dbe95f408b9ce91ee846ed", hashing.getHash());
+        Assertions.assertEquals("b94d27b9934d3e08a52e52d7da7dabfac484efe37a5380ee9088f7ace2efcde9",
+                hashing.getHash(HashingOutputStream.SHA_256));
+        Assertions.assertEquals("5eb63bbbe01eeed093cb22bb8f5acdc3", hashing.getHash(HashingOutputStream.MD5));
+        Assertions.assertThrows(IOException.class, () -> hashing.write(data));
+        Assertions.assertThrows(IOException.class, () -> hashing.write(data[0]));
+    }
 }
@@ -1,7 +1,6 @@
 package com.redhat.hacbs.cli;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Set;
 
@@ -14,10 +13,9 @@ import picocli.CommandLine;
 public class DiagnosticCommand {
     @CommandLine.Command(name = "print-class-tracking-data", mixinStandardHelpOptions = true, description = "Print class tracking information")
     public void classdump(@CommandLine.Parameters() Path fileName) {
-        String name = fileName.toString();
         try {
             System.out.println("Looking for " + fileName);
-            Set<TrackingData> result = ClassFileTracker.readTrackingDataFromFile(Files.newInputStream(fileName), name);
+            Set<TrackingData> result = ClassFileTracker.readTrackingDataFromFile(fileName);
 
             if (result.isEmpty()) {
                 System.out.println("No tracking data found");
@@ -3,8 +3,15 @@ package com.redhat.hacbs.management.watcher;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -12,9 +19,12 @@ import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.LockOptions;
+import org.hibernate.cfg.AvailableSettings;
 
 import com.redhat.hacbs.management.dto.RunningBuildDTO;
 import com.redhat.hacbs.management.model.BuildQueue;
@@ -29,7 +39,6 @@ import io.fabric8.kubernetes.client.Config;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
 import io.quarkus.logging.Log;
-import io.quarkus.panache.common.Sort;
 import io.quarkus.runtime.ExecutorRecorder;
 import io.quarkus.runtime.LaunchMode;
 import io.quarkus.runtime.Startup;
@@ -53,7 +62,24 @@ public class BuildOrchestrator {
     volatile int runningBuilds;
     volatile List<RunningBuildDTO> runningBuildList = List.of();
 
+    /**
+     * The builds that count towards the concurrent build limit, keyed by name. These are maintained from the informer
+     * events, so the builds don't need to be listed to count them.
+     */
+    final Map<String, RunningBuildDTO> runningDependencyBuilds = new ConcurrentHashMap<>();
+    final Map<String, RunningBuildDTO> runningArtifactBuilds = new ConcurrentHashMap<>();
+    /**
+     * Released once the informers have loaded the existing builds, so the running builds are known
+     */
+    private final CountDownLatch informersSynced = new CountDownLatch(1);
+
     private final Lock lock = new ReentrantLock();
+    private final AtomicBoolean checkRequested = new AtomicBoolean();
+    /**
+     * Set when a check is requested, so a request that arrives while another check is running is picked up by that
+     * check once it finishes rather than being dropped
+     */
+    private final AtomicBoolean recheck = new AtomicBoolean();
 
     @Inject
     public BuildOrchestrator(KubernetesClient client,
@@ -77,30 +103,104 @@ public class BuildOrchestrator {
             @Override
             public void run() {
 
-                client.resources(DependencyBuild.class).inform().addEventHandler(new ResourceEventHandler<DependencyBuild>() {
-                    @Override
-                    public void onAdd(DependencyBuild build) {
-                    }
+                var dependencyBuildInformer = client.resources(DependencyBuild.class)
+                        .inform(new ResourceEventHandler<DependencyBuild>() {
+                            @Override
+                            public void onAdd(DependencyBuild build) {
+                                onDependencyBuild(build);
+                            }
 
-                    @Override
-                    public void onUpdate(DependencyBuild old, DependencyBuild newObj) {
-                        checkBuildQueueAsync();
-                    }
+                            @Override
+                            public void onUpdate(DependencyBuild old, DependencyBuild newObj) {
+                                onDependencyBuild(newObj);
+                            }
+
+                            @Override
+                            public void onDelete(DependencyBuild build, boolean deletedFinalStateUnknown) {
+                                buildFinished(runningDependencyBuilds, build.getMetadata().getName());
+                            }
+                        });
+                var artifactBuildInformer = client.resources(ArtifactBuild.class)
+                        .inform(new ResourceEventHandler<ArtifactBuild>() {
+                            @Override
+                            public void onAdd(ArtifactBuild build) {
+                                onArtifactBuild(build);
+                            }
 
-                    @Override
-                    public void onDelete(DependencyBuild artifactBuild, boolean deletedFinalStateUnknown) {
-                        checkBuildQueueAsync();
+                            @Override
+                            public void onUpdate(ArtifactBuild old, ArtifactBuild newObj) {
+                                onArtifactBuild(newObj);
+                            }
+
+                            @Override
+                            public void onDelete(ArtifactBuild build, boolean deletedFinalStateUnknown) {
+                                buildFinished(runningArtifactBuilds, build.getMetadata().getName());
+                            }
+                        });
+                while (!dependencyBuildInformer.hasSynced() || !artifactBuildInformer.hasSynced()) {
+                    try {
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
                     }
-                });
+                }
+                informersSynced.countDown();
                 checkBuildQueue();
             }
         });
     }
 
+    void onDependencyBuild(DependencyBuild build) {
+        if (build.getStatus() != null && build.getStatus().getState() != null &&
+                (Objects.equals(build.getStatus().getState(), ModelConstants.DEPENDENCY_BUILD_COMPLETE) ||
+                        Objects.equals(build.getStatus().getState(), ModelConstants.DEPENDENCY_BUILD_CONTAMINATED) ||
+                        Objects.equals(build.getStatus().getState(), ModelConstants.DEPENDENCY_BUILD_FAILED))) {
+            buildFinished(runningDependencyBuilds, build.getMetadata().getName());
+            return;
+        }
+        runningDependencyBuilds.put(build.getMetadata().getName(),
+                new RunningBuildDTO(build.getSpec().getScm().getScmURL() + "@" + build.getSpec().getScm().getTag(),
+                        build.getStatus() == null ? "" : build.getStatus().getState(),
+                        Instant.parse(build.getMetadata().getCreationTimestamp())));
+    }
+
+    void onArtifactBuild(ArtifactBuild build) {
+        if (build.getStatus() == null ||
+                build.getStatus().getState() == null ||
+                Objects.equals(build.getStatus().getState(), ModelConstants.ARTIFACT_BUILD_NEW) ||
+                Objects.equals(build.getStatus().getState(), ModelConstants.ARTIFACT_BUILD_DISCOVERING) ||
+                Objects.equals(build.getStatus().getState(), "") ||
+                (build.getMetadata().getAnnotations() != null
+                        && build.getMetadata().getAnnotations().get(ModelConstants.REBUILD) != null)) {
+            //we also count new ABRs
+            runningArtifactBuilds.put(build.getMetadata().getName(),
+                    new RunningBuildDTO(build.getSpec().getGav(),
+                            build.getStatus() == null ? "" : build.getStatus().getState(),
+                            Instant.parse(build.getMetadata().getCreationTimestamp())));
+        } else {
+            buildFinished(runningArtifactBuilds, build.getMetadata().getName());
+        }
+    }
+
+    /**
+     * Removes a build from the running builds, and checks the queue if this frees up a slot.
+     */
+    private void buildFinished(Map<String, RunningBuildDTO> running, String name) {
+        if (running.remove(name) != null) {
+            checkBuildQueueAsync();
+        }
+    }
+
     private void checkBuildQueueAsync() {
+        //a check that has been requested but not started yet will see this change as well
+        if (!checkRequested.compareAndSet(false, true)) {
+            return;
+        }
         ExecutorRecorder.getCurrent().execute(new Runnable() {
             @Override
             public void run() {
+                checkRequested.set(false);
                 checkBuildQueue();
             }
         });
@@ -113,58 +213,44 @@ public class BuildOrchestrator {
 
     @Scheduled(every = "1m")
     void checkBuildQueue() {
-        if (!lock.tryLock()) {
+        recheck.set(true);
+        //if another thread holds the lock it will see the recheck flag once it has released it, and run again
+        while (recheck.get() && lock.tryLock()) {
+            try {
+                if (recheck.getAndSet(false)) {
+                    doCheckBuildQueue();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void doCheckBuildQueue() {
+        Log.infof("running build queue orchestration");
+        if (isDisabled()) {
             return;
         }
         try {
-
-            Log.infof("running build queue orchestration");
-            if (isDisabled()) {
+            if (!informersSynced.await(1, TimeUnit.MINUTES)) {
+                Log.warnf("Build informers have not synced, unable to determine the running builds");
                 return;
             }
-            cleanupRepeats();
-            var dbs = client.resources(DependencyBuild.class).list();
-            var abrs = client.resources(ArtifactBuild.class).list();
-            int count = 0;
-            List<RunningBuildDTO> rbl = new ArrayList<>();
-            for (var i : dbs.getItems()) {
-                if (i.getStatus() != null && i.getStatus().getState() != null &&
-                        (Objects.equals(i.getStatus().getState(), ModelConstants.DEPENDENCY_BUILD_COMPLETE) ||
-                                Objects.equals(i.getStatus().getState(), ModelConstants.DEPENDENCY_BUILD_CONTAMINATED) ||
-                                Objects.equals(i.getStatus().getState(), ModelConstants.DEPENDENCY_BUILD_FAILED))) {
-                    continue;
-                }
-                count++;
-                rbl.add(new RunningBuildDTO(i.getSpec().getScm().getScmURL() + "@" + i.getSpec().getScm().getTag(),
-                        i.getStatus() == null ? "" : i.getStatus().getState(),
-                        Instant.parse(i.getMetadata().getCreationTimestamp())));
-            }
-            for (var i : abrs.getItems()) {
-                if (i.getStatus() == null ||
-                        i.getStatus().getState() == null ||
-                        Objects.equals(i.getStatus().getState(), ModelConstants.ARTIFACT_BUILD_NEW) ||
-                        Objects.equals(i.getStatus().getState(), ModelConstants.ARTIFACT_BUILD_DISCOVERING) ||
-                        Objects.equals(i.getStatus().getState(), "") ||
-                        (i.getMetadata().getAnnotations() != null
-                                && i.getMetadata().getAnnotations().get(ModelConstants.REBUILD) != null)) {
-                    count++; //we also count new ABRs
-                    rbl.add(new RunningBuildDTO(i.getSpec().getGav(), i.getStatus() == null ? "" : i.getStatus().getState(),
-                            Instant.parse(i.getMetadata().getCreationTimestamp())));
-                }
-            }
-            Log.infof("%s currently running jobs", count);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        cleanupRepeats();
+        List<RunningBuildDTO> rbl = new ArrayList<>(runningDependencyBuilds.values());
+        rbl.addAll(runningArtifactBuilds.values());
+        int count = rbl.size();
+        Log.infof("%s currently running jobs", count);
 
-            while (count < concurrentBuilds) {
-                if (!createArtifactBuild()) {
-                    break;
-                }
-                count++;
-            }
-            runningBuilds = count;
-            runningBuildList = rbl;
-        } finally {
-            lock.unlock();
+        if (count < concurrentBuilds) {
+            count += createArtifactBuilds(concurrentBuilds - count);
         }
+        runningBuilds = count;
+        runningBuildList = rbl;
     }
 
     @Transactional
@@ -176,66 +262,153 @@ public class BuildOrchestrator {
         toDelete.forEach(s -> s.delete());
     }
 
-    @Transactional
-    boolean createArtifactBuild() {
-        for (;;) {
-            BuildQueue bq = BuildQueue.find("priority", Sort.ascending("id"), true).firstResult();
-            if (bq == null) {
-                bq = BuildQueue.find("priority", Sort.ascending("id"), false).firstResult();
+    /**
+     * Claims up to the given number of entries from the build queue, priority builds first. Rows that are locked by
+     * another transaction are skipped rather than waited for.
+     *
+     * @param max the maximum number of entries to claim
+     * @param skip the ids of entries that must not be claimed
+     */
+    List<BuildQueue> claimBuildQueue(int max, Set<Long> skip) {
+        var query = entityManager.createQuery(skip.isEmpty()
+                ? "select b from BuildQueue b order by b.priority desc, b.id asc"
+                : "select b from BuildQueue b where b.id not in :skip order by b.priority desc, b.id asc",
+                BuildQueue.class);
+        if (!skip.isEmpty()) {
+            query.setParameter("skip", skip);
+        }
+        return query
+                .setMaxResults(max)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint(AvailableSettings.JAKARTA_LOCK_TIMEOUT, LockOptions.SKIP_LOCKED)
+                .getResultList();
+    }
+
+    /**
+     * Starts builds from the build queue, claiming entries in batches until enough builds have been started or the
+     * queue is empty. Entries that are removed without starting a build do not count, so another batch is claimed to
+     * fill their slots.
+     *
+     * @param max the maximum number of builds to start
+     * @return the number of builds that were started, zero if the queue is empty
+     */
+    int createArtifactBuilds(int max) {
+        int created = 0;
+        //entries that have been tried in this check, so an entry that failed is not claimed again straight away
+        Set<Long> attempted = new HashSet<>();
+        while (created < max) {
+            int result;
+            try {
+                result = claimAndCreateArtifactBuilds(max - created, attempted);
+            } catch (RuntimeException e) {
+                //the batch was rolled back, its entries are still queued and will be retried on the next check
+                Log.errorf(e, "Failed to start builds from the build queue");
+                break;
             }
-            if (bq == null) {
-                return false;
+            if (result < 0) {
+                break;
             }
-            List<StoredDependencyBuild> existBuilds = entityManager
-                    .createQuery(
-                            "select s from StoredDependencyBuild s join s.buildAttempts ba join ba.producedArtifacts artifact where artifact=:artifact")
-                    .setParameter("artifact", bq.mavenArtifact)
-                    .getResultList();
-            if (existBuilds.isEmpty() || bq.rebuild) {
-                String targetGav = bq.mavenArtifact.gav();
-                String name = ResourceNameUtils.nameFromGav(targetGav);
-                ArtifactBuild existing = client.resources(ArtifactBuild.class).withName(name).get();
-                if (existing == null) {
-                    Log.infof("creating artifact from the build queue: %s", targetGav);
-                    ArtifactBuild artifactBuild = new ArtifactBuild();
-                    artifactBuild.getMetadata().setAnnotations(new HashMap<>());
-                    artifactBuild.getMetadata().getAnnotations().put(HOURS_TO_LIVE, "10");
-                    artifactBuild.setSpec(new ArtifactBuildSpec());
-                    artifactBuild.getMetadata().setName(name);
-                    artifactBuild.getSpec().setGav(targetGav);
-                    client.resource(artifactBuild).create();
+            created += result;
+        }
+        return created;
+    }
+
+    /**
+     * Claims up to the given number of entries from the build queue with a single query, and starts their builds in the
+     * same transaction so the entries stay locked until they have been handled. A build that fails to start is logged
+     * and only its own entry is left in the queue. If the transaction itself fails every entry in the batch stays
+     * queued, which is safe to retry as an entry whose ArtifactBuild already exists does not create another one.
+     *
+     * @param max the maximum number of entries to claim
+     * @param attempted the entries that have already been tried, the claimed entries are added to it
+     * @return the number of builds that were started, or -1 if the queue is empty
+     */
+    @Transactional
+    int claimAndCreateArtifactBuilds(int max, Set<Long> attempted) {
+        List<BuildQueue> claimed = claimBuildQueue(max, attempted);
+        if (claimed.isEmpty()) {
+            return -1;
+        }
+        int created = 0;
+        for (var bq : claimed) {
+            attempted.add(bq.id);
+            try {
+                if (createArtifactBuild(bq)) {
+                    ++created;
+                }
+            } catch (RuntimeException e) {
+                Log.errorf(e, "Failed to start a build for %s from the build queue", bq.mavenArtifact.gav());
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Starts the build for a build queue entry, returning true if a build was started. The entry is removed from the
+     * queue either way.
+     */
+    private boolean createArtifactBuild(BuildQueue bq) {
+        List<StoredDependencyBuild> existBuilds = entityManager
+                .createQuery(
+                        "select s from StoredDependencyBuild s join s.buildAttempts ba join ba.producedArtifacts artifact where artifact=:artifact")
+                .setParameter("artifact", bq.mavenArtifact)
+                .getResultList();
+        if (existBuilds.isEmpty() || bq.rebuild) {
+            String targetGav = bq.mavenArtifact.gav();
+            String name = ResourceNameUtils.nameFromGav(targetGav);
+            ArtifactBuild existing = client.resources(ArtifactBuild.class).withName(name).get();
+            if (existing == null) {
+                Log.infof("creating artifact from the build queue: %s", targetGav);
+                ArtifactBuild artifactBuild = new ArtifactBuild();
+                artifactBuild.getMetadata().setAnnotations(new HashMap<>());
+                artifactBuild.getMetadata().getAnnotations().put(HOURS_TO_LIVE, "10");
+                artifactBuild.setSpec(new ArtifactBuildSpec());
+                artifactBuild.getMetadata().setName(name);
+                artifactBuild.getSpec().setGav(targetGav);
+                client.resource(artifactBuild).create();
+                //count it straight away rather than waiting for the informer
+                runningArtifactBuilds.put(name, new RunningBuildDTO(targetGav, "", Instant.now()));
+                bq.delete();
+                return true;
+            } else if (bq.rebuild) {
+                if (existing.getMetadata().getAnnotations() == null) {
+                    existing.getMetadata().setAnnotations(new HashMap<>());
+                }
+                existing.getMetadata().getAnnotations().put(ModelConstants.REBUILD, "true");
+                client.resource(existing).update();
+                runningArtifactBuilds.put(name, new RunningBuildDTO(targetGav,
+                        existing.getStatus() == null ? "" : existing.getStatus().getState(), Instant.now()));
+                for (var build : existBuilds) {
+                    List<BuildQueue> toDelete = entityManager.createQuery(
+                            "select b from StoredArtifactBuild a inner join BuildQueue b on b.mavenArtifact=a.mavenArtifact where a.buildIdentifier =:buildId")
+                            .setParameter("buildId", build.buildIdentifier)
+                            .getResultList();
+                    toDelete.forEach(s -> s.delete());
+                }
+                if (existBuilds.isEmpty()) {
                     bq.delete();
-                    return true;
-                } else if (bq.rebuild) {
-                    if (existing.getMetadata().getAnnotations() == null) {
-                        existing.getMetadata().setAnnotations(new HashMap<>());
-                    }
-                    existing.getMetadata().getAnnotations().put(ModelConstants.REBUILD, "true");
-                    client.resource(existing).update();
-                    for (var build : existBuilds) {
-                        List<BuildQueue> toDelete = entityManager.createQuery(
-                                "select b from StoredArtifactBuild a inner join BuildQueue b on b.mavenArtifact=a.mavenArtifact where a.buildIdentifier =:buildId")
-                                .setParameter("buildId", build.buildIdentifier)
-                                .getResultList();
-                        toDelete.forEach(s -> s.delete());
-                    }
-                    if (existBuilds.isEmpty()) {
-                        bq.delete();
-                    }
-                    return true;
                 }
+                return true;
             }
-            bq.delete();
         }
+        bq.delete();
+        return false;
     }
 
     /**
-     * An estimate of the number of running builds, this is slow to count so it may be useful in the UI.
+     * The number of running builds when the build queue was last checked.
      */
     public int getRunningBuilds() {
         return runningBuilds;
     }
 
+    /**
+     * The current number of running builds, as seen by the informers.
+     */
+    int countRunningBuilds() {
+        return runningDependencyBuilds.size() + runningArtifactBuilds.size();
+    }
+
     public List<RunningBuildDTO> getRunningBuildList() {
         return runningBuildList;
     }
@@ -2,6 +2,8 @@ package com.redhat.hacbs.management.watcher;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import jakarta.inject.Inject;
 
@@ -16,8 +18,15 @@ import com.redhat.hacbs.management.model.MavenArtifact;
 import com.redhat.hacbs.management.model.ScmRepository;
 import com.redhat.hacbs.management.model.StoredDependencyBuild;
 import com.redhat.hacbs.resources.model.v1alpha1.ArtifactBuild;
+import com.redhat.hacbs.resources.model.v1alpha1.ArtifactBuildSpec;
+import com.redhat.hacbs.resources.model.v1alpha1.ArtifactBuildStatus;
 import com.redhat.hacbs.resources.model.v1alpha1.DependencyBuild;
+import com.redhat.hacbs.resources.model.v1alpha1.DependencyBuildSpec;
+import com.redhat.hacbs.resources.model.v1alpha1.DependencyBuildStatus;
+import com.redhat.hacbs.resources.model.v1alpha1.ModelConstants;
+import com.redhat.hacbs.resources.model.v1alpha1.dependencybuildspec.Scm;
 
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.quarkus.test.TestTransaction;
 import io.quarkus.test.junit.QuarkusTest;
@@ -33,9 +42,75 @@ public class BuildOrchestratorTestCase {
     BuildOrchestrator buildOrchestrator;
 
     @AfterEach
-    public void clean() {
+    public void clean() throws InterruptedException {
         client.resources(ArtifactBuild.class).delete();
         client.resources(DependencyBuild.class).delete();
+        //the running builds are updated from the informer events
+        waitForRunningBuilds(0);
+    }
+
+    private void waitForRunningBuilds(int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && buildOrchestrator.countRunningBuilds() != expected; ++i) {
+            Thread.sleep(100);
+        }
+    }
+
+    @Test
+    public void testRunningBuildsFromInformer() throws InterruptedException {
+        DependencyBuild dependencyBuild = new DependencyBuild();
+        dependencyBuild.setMetadata(new ObjectMetaBuilder().withName("test-dependency-build")
+                .withCreationTimestamp(Instant.now().toString()).build());
+        DependencyBuildSpec dependencyBuildSpec = new DependencyBuildSpec();
+        Scm scm = new Scm();
+        scm.setScmURL("https://github.com/foo/test.git");
+        scm.setTag("1.0");
+        dependencyBuildSpec.setScm(scm);
+        dependencyBuild.setSpec(dependencyBuildSpec);
+        dependencyBuild = client.resource(dependencyBuild).create();
+
+        ArtifactBuild artifactBuild = new ArtifactBuild();
+        artifactBuild.setMetadata(new ObjectMetaBuilder().withName("test-artifact-build")
+                .withCreationTimestamp(Instant.now().toString()).build());
+        artifactBuild.setSpec(new ArtifactBuildSpec());
+        artifactBuild.getSpec().setGav("com.foo:test:1.0");
+        artifactBuild = client.resource(artifactBuild).create();
+        waitForRunningBuilds(2);
+        Assertions.assertEquals(2, buildOrchestrator.countRunningBuilds());
+
+        DependencyBuildStatus dependencyBuildStatus = new DependencyBuildStatus();
+        dependencyBuildStatus.setState(ModelConstants.DEPENDENCY_BUILD_COMPLETE);
+        dependencyBuild.setStatus(dependencyBuildStatus);
+        client.resource(dependencyBuild).update();
+        waitForRunningBuilds(1);
+        Assertions.assertEquals(1, buildOrchestrator.countRunningBuilds());
+
+        ArtifactBuildStatus artifactBuildStatus = new ArtifactBuildStatus();
+        artifactBuildStatus.setState(ModelConstants.ARTIFACT_BUILD_COMPLETE);
+        artifactBuild.setStatus(artifactBuildStatus);
+        client.resource(artifactBuild).update();
+        waitForRunningBuilds(0);
+        Assertions.assertEquals(0, buildOrchestrator.countRunningBuilds());
+    }
+
+    @Test
+    @TestTransaction
+    public void testClaimBuildQueue() {
+        BuildQueue normal = queue("com.foo:claim:1.0", false);
+        BuildQueue first = queue("com.foo:claim:1.1", true);
+        BuildQueue second = queue("com.foo:claim:1.2", true);
+
+        //priority builds are claimed first, then in the order they were queued
+        Assertions.assertEquals(List.of(first, second), buildOrchestrator.claimBuildQueue(2, Set.of()));
+        Assertions.assertEquals(List.of(second, normal), buildOrchestrator.claimBuildQueue(2, Set.of(first.id)));
+        Assertions.assertEquals(List.of(first, second, normal), buildOrchestrator.claimBuildQueue(5, Set.of()));
+    }
+
+    private static BuildQueue queue(String gav, boolean priority) {
+        BuildQueue bq = new BuildQueue();
+        bq.mavenArtifact = MavenArtifact.forGav(gav);
+        bq.priority = priority;
+        bq.persistAndFlush();
+        return bq;
     }
 
     @Test
@@ -984,6 +984,10 @@ func verifyParameters(jbsConfig *v1alpha1.JBSConfig, recipe *v1alpha1.BuildRecip
 		"--deploy-path=$(workspaces.source.path)/artifacts",
 		"--task-run-name=$(context.taskRun.name)",
 		"--results-file=$(results." + PipelineResultPassedVerification + ".path)",
+		// the workspace is kept when the task is retried, so upstream artifacts are only downloaded once. The build
+		// can write to the workspace, so cached artifacts are re-hashed and checked against the upstream checksums on
+		// every use
+		"--cache-dir=$(workspaces.source.path)/upstream-artifact-cache",
 	}
 
 	if !jbsConfig.Spec.RequireArtifactVerification {